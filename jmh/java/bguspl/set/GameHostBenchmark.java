@@ -0,0 +1,67 @@
+package bguspl.set;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+/**
+ * Benchmarks whole games of many computer players in a game host, on platform threads and on virtual threads (each
+ * bot has a player thread and an AI thread, so 200 bots are 400 threads). The games run on a ScaledClock, so the
+ * time measured is mostly the cost of scheduling the threads. The grid stops at 200 bots, where a game on platform
+ * threads already takes tens of seconds, so a run with forks stays reproducible (GameHost runs larger games).
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(3)
+public class GameHostBenchmark {
+
+    @Param({"50", "200"})
+    public int bots;
+
+    @Param({"false", "true"})
+    public boolean virtualThreads;
+
+    private GameHost host;
+
+    @Setup
+    public void setUp() {
+        Properties properties = new Properties();
+        properties.put("LogLevel", "OFF");
+        properties.put("HumanPlayers", "0");
+        properties.put("ComputerPlayers", Integer.toString(bots));
+        properties.put("VirtualThreads", Boolean.toString(virtualThreads));
+        properties.put("RandomSeed", "1");
+        properties.put("TurnTimeoutSeconds", "0");
+        properties.put("EndGamePauseSeconds", "0");
+        Logger logger = Logger.getAnonymousLogger();
+        Config config = new Config(logger, properties);
+        host = new GameHost(logger, config, new UtilImpl(config), 1, new ScaledClock(100));
+    }
+
+    @TearDown
+    public void tearDown() {
+        host.shutdown();
+    }
+
+    @Benchmark
+    public List<GameHost.GameReport> game() throws InterruptedException {
+        return host.run(1);
+    }
+}
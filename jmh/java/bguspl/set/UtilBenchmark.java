@@ -0,0 +1,138 @@
+package bguspl.set;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Benchmarks of the set engine (Util implementations) on a shuffled deck and on a table of its first cards.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(3)
+public class UtilBenchmark {
+
+    /**
+     * The deck size is 3 ^ featureCount.
+     */
+    @Param({"4", "5", "6"})
+    public int featureCount;
+
+    @Param({"12", "21"})
+    public int tableSize;
+
+    private UtilImpl util;
+    private UtilImpl parallelUtil;
+    private PackedUtilImpl packedUtil;
+
+    private int[] deck;
+    private int[] table;
+    private List<Integer> tableList;
+    private int[] claim;
+    private int[] sets;
+
+    static Config config(int featureCount, int tableSize, String parallelism) {
+        Properties properties = new Properties();
+        properties.put("LogLevel", "OFF");
+        properties.put("FeatureCount", Integer.toString(featureCount));
+        properties.put("Rows", "3");
+        properties.put("Columns", Integer.toString(tableSize / 3));
+        properties.put("SetSearchParallelism", parallelism);
+        properties.put("ParallelSetSearchThreshold", "0");
+        return new Config(Logger.getAnonymousLogger(), properties);
+    }
+
+    @Setup
+    public void setUp() {
+        Config config = config(featureCount, tableSize, "1");
+        util = new UtilImpl(config);
+        parallelUtil = new UtilImpl(config(featureCount, tableSize,
+                Integer.toString(Math.max(2, Runtime.getRuntime().availableProcessors()))));
+        packedUtil = new PackedUtilImpl(config);
+
+        List<Integer> shuffled = IntStream.range(0, config.deckSize).boxed().collect(Collectors.toList());
+        Collections.shuffle(shuffled, new Random(0));
+        deck = shuffled.stream().mapToInt(Integer::intValue).toArray();
+        table = Arrays.copyOf(deck, config.tableSize);
+        tableList = shuffled.subList(0, config.tableSize);
+        claim = new int[config.featureSize];
+        util.findSets(deck, deck.length, claim);
+        sets = new int[deck.length * deck.length * config.featureSize];
+    }
+
+    @Benchmark
+    public boolean testSet() {
+        return util.testSet(claim);
+    }
+
+    @Benchmark
+    public boolean testSetByFeatures() {
+        return util.testSetByFeatures(claim);
+    }
+
+    @Benchmark
+    public boolean testSetPacked() {
+        return packedUtil.testSet(claim);
+    }
+
+    @Benchmark
+    public int[][] cardsToFeatures() {
+        return util.cardsToFeatures(claim);
+    }
+
+    @Benchmark
+    public int findSetsTable() {
+        return util.findSets(table, table.length, sets);
+    }
+
+    @Benchmark
+    public List<int[]> findSetsTableList() {
+        return util.findSets(tableList, Integer.MAX_VALUE);
+    }
+
+    @Benchmark
+    public List<int[]> findSetsTableByCombinations() {
+        return util.findSetsByCombinations(tableList, Integer.MAX_VALUE);
+    }
+
+    @Benchmark
+    public int countSetsTable() {
+        return util.countSets(table, table.length, null);
+    }
+
+    @Benchmark
+    public int findSetsDeck() {
+        return util.findSets(deck, deck.length, sets);
+    }
+
+    @Benchmark
+    public int findSetsDeckParallel() {
+        return parallelUtil.findSets(deck, deck.length, sets);
+    }
+
+    @Benchmark
+    public int countSetsDeck() {
+        return util.countSets(deck, deck.length, null);
+    }
+}
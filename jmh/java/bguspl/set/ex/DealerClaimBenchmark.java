@@ -0,0 +1,139 @@
+package bguspl.set.ex;
+
+import bguspl.set.Config;
+import bguspl.set.Env;
+import bguspl.set.UserInterfaceHeadless;
+import bguspl.set.UtilImpl;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Properties;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+/**
+ * Benchmarks a full claim round-trip through the dealer: verifying a legal set claimed by a player, removing its
+ * cards from the table and dealing the replacements. A claim takes microseconds, so it is prepared inside the
+ * benchmark rather than in a per-invocation setup (whose timing overhead would dominate); prepareClaim measures the
+ * preparation alone. The preparation includes the reshuffles (and the occasional new game) needed for a table with a
+ * set, so claim also includes them where sets are rare (e.g. 12 cards of 6 features).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(3)
+public class DealerClaimBenchmark {
+
+    /**
+     * The deck size is 3 ^ featureCount.
+     */
+    @Param({"4", "5", "6"})
+    public int featureCount;
+
+    @Param({"12", "21"})
+    public int tableSize;
+
+    /**
+     * The number of times a table without sets is reshuffled before starting a new game (e.g. once the claims ran
+     * out the deck, or the rest of the deck has no sets).
+     */
+    private static final int MAX_RESHUFFLES = 10;
+
+    /**
+     * The seeds of the games, so every new game deals different cards (and the runs repeat).
+     */
+    private final SplittableRandom seeds = new SplittableRandom(1);
+
+    private Env env;
+    private Table table;
+    private Dealer dealer;
+    private Player[] players;
+    private int[] cards;
+    private int[] set;
+
+    @Setup
+    public void setUp() {
+        Properties properties = new Properties();
+        properties.put("LogLevel", "OFF");
+        properties.put("FeatureCount", Integer.toString(featureCount));
+        properties.put("Rows", "3");
+        properties.put("Columns", Integer.toString(tableSize / 3));
+        properties.put("TableDelaySeconds", "0");
+        properties.put("HumanPlayers", "0");
+        properties.put("ComputerPlayers", "2");
+        Logger logger = Logger.getAnonymousLogger();
+        Config config = new Config(logger, properties);
+        env = new Env(logger, config, new UserInterfaceHeadless(), new UtilImpl(config));
+        cards = new int[config.tableSize];
+        set = new int[config.featureSize];
+        // checking that the claims are verified (and not dropped as stale):
+        newGame();
+        claim();
+        if (players[0].score() != 1)
+            throw new IllegalStateException("the dealer did not accept the claim of the benchmark");
+        newGame();
+    }
+
+    private void newGame() {
+        table = new Table(env);
+        players = new Player[env.config.players];
+        dealer = new Dealer(env, table, players, seeds.nextLong());
+        for (int i = 0; i < players.length; i++)
+            players[i] = new Player(env, dealer, table, i, false);
+        dealer.placeCardsOnTable();
+    }
+
+    /**
+     * Makes the first player claim a legal set on the table (reshuffling the table until there is one, as the dealer
+     * does, and starting a new game if that does not help).
+     */
+    private void claimSet() {
+        int reshuffles = 0;
+        while (table.setsOnTable() == 0) {
+            if (reshuffles++ < MAX_RESHUFFLES) {
+                dealer.removeAllCardsFromTable();
+                dealer.placeCardsOnTable();
+            } else {
+                newGame();
+                reshuffles = 0;
+            }
+        }
+        env.util.findSets(cards, table.cardsOnTable(cards), set);
+        players[0].slotTokenQ.clear();
+        // placing the tokens the way the player thread does (recording the slot versions):
+        for (int card : set) {
+            int slot = table.cardToSlot[card];
+            players[0].tokenVersions.set(slot, table.slotVersion(slot));
+            players[0].slotTokenQ.offer(slot);
+        }
+        players[0].waitForDealerDecision = true;
+        dealer.setsCheck.offer(0);
+    }
+
+    @Benchmark
+    public int prepareClaim() {
+        claimSet();
+        dealer.setsCheck.clear();
+        return players[0].slotTokenQ.size();
+    }
+
+    @Benchmark
+    public int claim() {
+        claimSet();
+        dealer.removeCardsFromTable();
+        dealer.placeCardsOnTable();
+        return players[0].score();
+    }
+}
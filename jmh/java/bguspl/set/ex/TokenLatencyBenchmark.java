@@ -0,0 +1,135 @@
+package bguspl.set.ex;
+
+import bguspl.set.Config;
+import bguspl.set.Env;
+import bguspl.set.UserInterfaceHeadless;
+import bguspl.set.UtilImpl;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.Logger;
+
+/**
+ * Benchmarks the latency of a token with a growing number of bots pressing keys at once: from the key press of the
+ * first player until its player thread placed or removed the token (see Dealer.tokenChanged) and woke the benchmark
+ * thread. The other players are pressed by a thread each, every millisecond like a random bot. Every player presses
+ * a slot of its own, so it has at most one token and never claims a set, and the dealer thread is not needed to keep
+ * the table and the players going.
+ */
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(3)
+public class TokenLatencyBenchmark {
+
+    @Param({"4", "16", "64"})
+    public int bots;
+
+    private Player[] players;
+    private Thread[] playerThreads;
+
+    /**
+     * The threads pressing the keys of the other players.
+     */
+    private Thread[] botThreads;
+    private volatile boolean stop;
+
+    /**
+     * The number of tokens each player placed or removed, and the thread waiting for its next token.
+     */
+    private AtomicIntegerArray tokens;
+    private Thread[] pressing;
+
+    @Setup
+    public void setUp() {
+        Properties properties = new Properties();
+        properties.put("LogLevel", "OFF");
+        properties.put("HumanPlayers", "0");
+        properties.put("ComputerPlayers", Integer.toString(bots));
+        properties.put("RandomSeed", "1");
+        properties.put("TableDelaySeconds", "0");
+        Logger logger = Logger.getAnonymousLogger();
+        Config config = new Config(logger, properties);
+        Env env = new Env(logger, config, new UserInterfaceHeadless(), new UtilImpl(config));
+        Table table = new Table(env);
+        players = new Player[config.players];
+        tokens = new AtomicIntegerArray(config.players);
+        pressing = new Thread[config.players];
+        Dealer dealer = new Dealer(env, table, players, config.randomSeed) {
+            @Override
+            void tokenChanged(Player player, int slot) {
+                super.tokenChanged(player, slot);
+                tokens.incrementAndGet(player.id);
+                LockSupport.unpark(pressing[player.id]);
+            }
+        };
+        // pressed by the threads of the benchmark instead of an AI:
+        for (int i = 0; i < players.length; i++)
+            players[i] = new Player(env, dealer, table, i, true);
+        dealer.placeCardsOnTable();
+        dealer.allowPlaying = true;
+
+        playerThreads = new Thread[players.length];
+        for (int i = 0; i < players.length; i++) {
+            playerThreads[i] = new Thread(players[i], "player" + i);
+            playerThreads[i].start();
+        }
+        botThreads = new Thread[players.length - 1];
+        for (int i = 0; i < botThreads.length; i++) {
+            int id = i + 1;
+            botThreads[i] = new Thread(() -> {
+                while (!stop) {
+                    press(id);
+                    try {
+                        Thread.sleep(1);
+                    } catch (InterruptedException ignored) {
+                    }
+                }
+            }, "bot" + id);
+            botThreads[i].start();
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws InterruptedException {
+        stop = true;
+        for (Thread bot : botThreads)
+            bot.join();
+        for (int i = 0; i < players.length; i++) {
+            players[i].terminate();
+            playerThreads[i].join();
+        }
+    }
+
+    /**
+     * Presses the slot of a player and waits until the player placed or removed its token.
+     */
+    private void press(int id) {
+        pressing[id] = Thread.currentThread();
+        int before = tokens.get(id);
+        players[id].keyPressed(id % players[id].tokenVersions.length());
+        while (tokens.get(id) == before)
+            LockSupport.park(this);
+    }
+
+    @Benchmark
+    public void token() {
+        press(0);
+    }
+}
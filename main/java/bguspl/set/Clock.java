@@ -0,0 +1,41 @@
+package bguspl.set;
+
+/**
+ * The source of time of the game. All the game's deadlines (the countdown, the freezes, the table delay etc.) are
+ * measured and waited for on it, so a game can run on a clock that is faster than real time.
+ */
+public interface Clock {
+
+    /**
+     * The earliest deadline that parkUntil treats as no deadline at all (about 292 years, the largest deadline whose
+     * nanoseconds fit in a long).
+     */
+    long NO_DEADLINE = Long.MAX_VALUE / 1000000;
+
+    /**
+     * Returns the current time.
+     *
+     * @return - the current time in milliseconds.
+     */
+    long millis();
+
+    /**
+     * Sleeps for the given time (on this clock).
+     *
+     * @param millis - the time to sleep in milliseconds.
+     * @throws InterruptedException - if the thread is interrupted while sleeping.
+     */
+    void sleep(long millis) throws InterruptedException;
+
+    /**
+     * Parks the calling thread until it is unparked (see LockSupport.unpark) or until the given time (on this clock),
+     * whichever comes first. Returns immediately if the time has passed, or if the thread was unparked since it last
+     * parked. As with LockSupport.park, the thread may also wake up spuriously, so callers should park in a loop.
+     * Unlike waiting on a monitor, parking does not pin a virtual thread to its carrier thread.
+     * A deadline of NO_DEADLINE or later (e.g. Long.MAX_VALUE) parks without a timeout.
+     *
+     * @param deadline - the time to wake up at, in milliseconds (see millis()).
+     * @throws InterruptedException - if the thread is interrupted while parking.
+     */
+    void parkUntil(long deadline) throws InterruptedException;
+}
@@ -7,6 +7,7 @@ import java.nio.file.InvalidPathException;
 import java.nio.file.Paths;
 import java.util.Arrays;
 import java.util.Properties;
+import java.util.SplittableRandom;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -36,6 +37,32 @@ public class Config {
      */
     public final int deckSize;
 
+    /**
+     * Whether to test sets on the features of the cards packed into a long (see PackedUtilImpl)
+     */
+    public final boolean packedFeatures;
+
+    /**
+     * The number of tasks a search for sets in a large collection of cards is split into, run on the common fork join pool (1 or less to search on the calling thread only)
+     */
+    public final int setSearchParallelism;
+
+    /**
+     * The minimum number of cards for searching sets in parallel
+     */
+    public final int parallelSetSearchThreshold;
+
+    /**
+     * The seed of all the random sources of the game (the dealer and the computer players), so a run can be repeated.
+     * Note: if not configured, a random seed is chosen (and logged by the dealer).
+     */
+    public final long randomSeed;
+
+    /**
+     * Whether to run the players and the computer players on virtual threads instead of platform threads
+     */
+    public final boolean virtualThreads;
+
     /**
      * The number of human players in the game.
      */
@@ -51,6 +78,21 @@ public class Config {
      */
     public final int players;
 
+    /**
+     * Whether the computer players look for sets on the table (instead of pressing random keys)
+     */
+    public final boolean smartComputerPlayers;
+
+    /**
+     * The average time a smart computer player takes to claim a set it sees (the reaction times are exponentially distributed)
+     */
+    public final long computerReactionMillis;
+
+    /**
+     * The probability that a smart computer player claims a wrong card instead of one of the cards of the set
+     */
+    public final double computerErrorRate;
+
     /**
      * Whether to print out hints to the console or not
      */
@@ -197,11 +239,23 @@ public class Config {
         featureSize = Integer.parseInt(properties.getProperty("FeatureSize", "3"));
         featureCount = Integer.parseInt(properties.getProperty("FeatureCount", "4"));
         deckSize = (int) Math.pow(featureSize, featureCount);
+        packedFeatures = Boolean.parseBoolean(properties.getProperty("PackedFeatures", "False"));
+        setSearchParallelism = Integer.parseInt(properties.getProperty("SetSearchParallelism",
+                Integer.toString(Runtime.getRuntime().availableProcessors())));
+        parallelSetSearchThreshold = Integer.parseInt(properties.getProperty("ParallelSetSearchThreshold", "1000"));
 
         // gameplay settings
+        String seed = properties.getProperty("RandomSeed", "").trim();
+        randomSeed = seed.isEmpty() ? new SplittableRandom().nextLong() : Long.parseLong(seed);
+        virtualThreads = Boolean.parseBoolean(properties.getProperty("VirtualThreads", "False"));
         humanPlayers = Integer.parseInt(properties.getProperty("HumanPlayers", "2"));
         computerPlayers = Integer.parseInt(properties.getProperty("ComputerPlayers", "0"));
         players = humanPlayers + computerPlayers;
+        smartComputerPlayers = Boolean.parseBoolean(properties.getProperty("SmartComputerPlayers", "False"));
+        computerReactionMillis = (long) (Double.parseDouble(properties.getProperty("ComputerReactionSeconds", "1")) * 1000.0);
+        computerErrorRate = Double.parseDouble(properties.getProperty("ComputerErrorRate", "0"));
+        if (computerReactionMillis < 0 || computerErrorRate < 0 || computerErrorRate > 1)
+            logger.severe("invalid computer players: reaction time: " + computerReactionMillis + " error rate: " + computerErrorRate);
 
         hints = Boolean.parseBoolean(properties.getProperty("Hints", "False"));
         turnTimeoutMillis = (long) (Double.parseDouble(properties.getProperty("TurnTimeoutSeconds", "60")) * 1000.0);
@@ -1,5 +1,6 @@
 package bguspl.set;
 
+import java.util.concurrent.ThreadFactory;
 import java.util.logging.Logger;
 
 public class Env {
@@ -8,11 +9,23 @@ public class Env {
     public final Config config;
     public final UserInterface ui;
     public final Util util;
+    public final Clock clock;
+
+    /**
+     * Creates the threads of the players and the computer players (virtual threads if config.virtualThreads).
+     */
+    public final ThreadFactory threads;
 
     public Env(Logger logger, Config config, UserInterface ui, Util util) {
+        this(logger, config, ui, util, new SystemClock());
+    }
+
+    public Env(Logger logger, Config config, UserInterface ui, Util util, Clock clock) {
         this.logger = logger;
         this.config = config;
         this.ui = ui;
         this.util = util;
+        this.clock = clock;
+        this.threads = config.virtualThreads ? Thread.ofVirtual().factory() : Thread::new;
     }
 }
@@ -0,0 +1,224 @@
+package bguspl.set;
+
+import bguspl.set.ex.Dealer;
+import bguspl.set.ex.Player;
+import bguspl.set.ex.Table;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Handler;
+import java.util.logging.Logger;
+
+/**
+ * Runs many independent games of computer players in one process (e.g. for bot leagues), and reports the throughput
+ * of each game and of all of them together.
+ * The games share the immutable resources: the configuration and the Util (with the precomputed card features; the
+ * parallel set searches run on the common fork join pool). They run without a user interface, and at most parallelGames of them run at
+ * a time, each one on a dealer thread of a fixed pool (the threads of a game are its dealer, players and AI threads).
+ * With config.virtualThreads the players and AI threads are virtual threads, so a game may have thousands of bots.
+ * In the simulation mode the games run on a ScaledClock, which compresses all the delays of the game (the turn
+ * timeout, the freezes, the table delay and the end game pause) by its speedup; the clock is still paced by real
+ * time (see ScaledClock), so a large speedup is what makes the games run about as fast as the CPU allows.
+ * Each game has its own random seed, drawn from config.randomSeed, so the games are independent of each other.
+ */
+public class GameHost {
+
+    /**
+     * The results of a single game.
+     */
+    public static final class GameReport {
+
+        /**
+         * The number of the game (starting from 0).
+         */
+        public final int game;
+
+        /**
+         * The (real) time the game took, in milliseconds.
+         */
+        public final long millis;
+
+        /**
+         * The number of sets collected in the game.
+         */
+        public final int sets;
+
+        GameReport(int game, long millis, int sets) {
+            this.game = game;
+            this.millis = millis;
+            this.sets = sets;
+        }
+
+        public double setsPerSecond() {
+            return millis == 0 ? 0 : sets * 1000.0 / millis;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("game %d: %d sets in %d ms (%.2f sets/sec)", game, sets, millis, setsPerSecond());
+        }
+    }
+
+    private final Logger logger;
+    private final Config config;
+    private final Util util;
+    private final Clock clock;
+
+    /**
+     * Draws the seed of each game (seeded by config.randomSeed, so the games of a seeded host repeat, but differ from
+     * each other).
+     */
+    private final SplittableRandom seeds;
+
+    /**
+     * The dealer threads of the games (bounds the number of games running at a time).
+     */
+    private final ExecutorService dealers;
+
+    /**
+     * @param logger        - the logger shared by all games.
+     * @param config        - the configuration shared by all games.
+     * @param util          - the utilities shared by all games.
+     * @param parallelGames - the maximum number of games running at a time.
+     */
+    public GameHost(Logger logger, Config config, Util util, int parallelGames) {
+        this(logger, config, util, parallelGames, new SystemClock());
+    }
+
+    /**
+     * @param logger        - the logger shared by all games.
+     * @param config        - the configuration shared by all games.
+     * @param util          - the utilities shared by all games.
+     * @param parallelGames - the maximum number of games running at a time.
+     * @param clock         - the clock of the games (e.g. a ScaledClock for simulations).
+     */
+    public GameHost(Logger logger, Config config, Util util, int parallelGames, Clock clock) {
+        this.logger = logger;
+        this.config = config;
+        this.util = util;
+        this.clock = clock;
+        this.seeds = new SplittableRandom(config.randomSeed);
+        AtomicInteger threads = new AtomicInteger();
+        this.dealers = Executors.newFixedThreadPool(parallelGames,
+                task -> new Thread(task, "game-host-" + threads.getAndIncrement()));
+        if (config.humanPlayers > 0)
+            logger.severe("warning: the game host runs all " + config.players + " players as computer players");
+    }
+
+    /**
+     * Runs the given number of games and waits for all of them to end.
+     *
+     * @param games - the number of games to run.
+     * @return - the reports of the games (in the order of the games).
+     */
+    public List<GameReport> run(int games) throws InterruptedException {
+        List<Callable<GameReport>> tasks = new ArrayList<>(games);
+        for (int i = 0; i < games; ++i) {
+            int game = i;
+            // drawn here, in the order of the games, so the seeds do not depend on the order the games start in:
+            long seed = seeds.nextLong();
+            tasks.add(() -> play(game, seed));
+        }
+        List<GameReport> reports = new ArrayList<>(games);
+        for (Future<GameReport> report : dealers.invokeAll(tasks)) {
+            try {
+                reports.add(report.get());
+            } catch (ExecutionException e) {
+                logger.severe("game failed: " + e.getCause());
+            }
+        }
+        return reports;
+    }
+
+    /**
+     * Plays a single game on the calling thread (the dealer runs on it and starts the players' threads).
+     */
+    private GameReport play(int game, long seed) {
+        Env env = new Env(logger, config, userInterface(game), util, clock);
+        Table table = new Table(env);
+        Player[] players = new Player[config.players];
+        Dealer dealer = new Dealer(env, table, players, seed);
+        for (int i = 0; i < players.length; i++)
+            players[i] = new Player(env, dealer, table, i, false);
+
+        long start = System.nanoTime();
+        dealer.run();
+        long millis = (System.nanoTime() - start) / 1000000;
+
+        int sets = 0;
+        for (Player player : players)
+            sets += player.score();
+        GameReport report = new GameReport(game, millis, sets);
+        logger.info(report.toString());
+        return report;
+    }
+
+    /**
+     * Creates the user interface of a game (by default one that shows nothing).
+     *
+     * @param game - the number of the game.
+     */
+    protected UserInterface userInterface(int game) {
+        return new UserInterfaceHeadless();
+    }
+
+    /**
+     * Stops the dealer threads (after the games that were started end).
+     */
+    public void shutdown() {
+        dealers.shutdown();
+    }
+
+    /**
+     * Summarizes the throughput of all the games.
+     *
+     * @param reports    - the reports of the games.
+     * @param wallMillis - the time it took to run all of them, in milliseconds.
+     * @return - the summary text.
+     */
+    public static String summary(List<GameReport> reports, long wallMillis) {
+        int sets = 0;
+        for (GameReport report : reports)
+            sets += report.sets;
+        double seconds = Math.max(wallMillis, 1) / 1000.0;
+        return String.format("%d games, %d sets in %d ms (%.2f games/sec, %.2f sets/sec)",
+                reports.size(), sets, wallMillis, reports.size() / seconds, sets / seconds);
+    }
+
+    /**
+     * Runs games with the configuration in config.properties.
+     *
+     * @param args - the number of games (default 4), the maximum number of games running at a time (default the
+     *             number of processors) and, for the simulation mode, the speedup of the clock (default 1, i.e.
+     *             real time).
+     */
+    public static void main(String[] args) throws InterruptedException {
+        int games = args.length > 0 ? Integer.parseInt(args[0]) : 4;
+        int parallelGames = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+        double speedup = args.length > 2 ? Double.parseDouble(args[2]) : 1;
+
+        Logger logger = Main.initLogger();
+        Config config = new Config(logger, "config.properties");
+        Clock clock = speedup > 1 ? new ScaledClock(speedup) : new SystemClock();
+        GameHost host = new GameHost(logger, config, Main.createUtil(logger, config), parallelGames, clock);
+
+        long start = System.nanoTime();
+        List<GameReport> reports = host.run(games);
+        long wallMillis = (System.nanoTime() - start) / 1000000;
+        host.shutdown();
+
+        for (GameReport report : reports)
+            System.out.println(report);
+        String summary = summary(reports, wallMillis);
+        System.out.println(summary);
+        logger.severe(summary);
+        for (Handler h : logger.getHandlers()) h.flush();
+    }
+}
@@ -0,0 +1,120 @@
+package bguspl.set;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A histogram of latencies (in nanoseconds) with fixed buckets, that may be recorded to by many threads without
+ * locks or allocations. Each power of two is split into SUB_BUCKETS buckets, so a percentile is accurate to within
+ * 1 / SUB_BUCKETS of its value.
+ */
+public class LatencyHistogram {
+
+    /**
+     * Each power of two is split into 2^SUB_BITS buckets.
+     */
+    private static final int SUB_BITS = 2;
+    private static final int SUB_BUCKETS = 1 << SUB_BITS;
+
+    /**
+     * Enough buckets for any non negative long.
+     */
+    private static final int BUCKETS = bucket(Long.MAX_VALUE) + 1;
+
+    /**
+     * The name of the histogram (for reports).
+     */
+    private final String name;
+
+    private final AtomicLongArray counts;
+    private final AtomicLong count;
+    private final AtomicLong max;
+
+    public LatencyHistogram(String name) {
+        this.name = name;
+        this.counts = new AtomicLongArray(BUCKETS);
+        this.count = new AtomicLong();
+        this.max = new AtomicLong();
+    }
+
+    /**
+     * Records a latency.
+     *
+     * @param nanos - the latency in nanoseconds (negative latencies are recorded as 0).
+     */
+    public void record(long nanos) {
+        if (nanos < 0)
+            nanos = 0;
+        counts.incrementAndGet(bucket(nanos));
+        count.incrementAndGet();
+        long current = max.get();
+        while (nanos > current && !max.compareAndSet(current, nanos))
+            current = max.get();
+    }
+
+    /**
+     * @return - the number of latencies recorded.
+     */
+    public long count() {
+        return count.get();
+    }
+
+    /**
+     * @return - the largest latency recorded in nanoseconds (0 if none).
+     */
+    public long max() {
+        return max.get();
+    }
+
+    /**
+     * Returns a percentile of the latencies recorded (the upper bound of the bucket it falls in).
+     *
+     * @param percent - the percentile (between 0 and 100).
+     * @return - the percentile in nanoseconds (0 if nothing was recorded).
+     */
+    public long percentile(double percent) {
+        long total = count.get();
+        if (total == 0)
+            return 0;
+        long rank = Math.max(1, (long) Math.ceil(total * percent / 100.0));
+        long seen = 0;
+        for (int bucket = 0; bucket < BUCKETS; ++bucket) {
+            seen += counts.get(bucket);
+            if (seen >= rank)
+                return Math.min(upperBound(bucket), max.get());
+        }
+        return max.get();
+    }
+
+    /**
+     * Returns the bucket of a latency: the values below SUB_BUCKETS have a bucket each, and above them the bucket is
+     * given by the position of the highest bit and the SUB_BITS bits below it.
+     */
+    static int bucket(long nanos) {
+        if (nanos < SUB_BUCKETS)
+            return (int) nanos;
+        int exponent = 63 - Long.numberOfLeadingZeros(nanos);
+        int subBucket = (int) (nanos >>> (exponent - SUB_BITS)) & (SUB_BUCKETS - 1);
+        return (exponent - SUB_BITS + 1) * SUB_BUCKETS + subBucket;
+    }
+
+    /**
+     * Returns the largest latency in a bucket.
+     */
+    static long upperBound(int bucket) {
+        if (bucket < SUB_BUCKETS)
+            return bucket;
+        int exponent = bucket / SUB_BUCKETS + SUB_BITS - 1;
+        long lowerBound = (long) (SUB_BUCKETS + bucket % SUB_BUCKETS) << (exponent - SUB_BITS);
+        return lowerBound + (1L << (exponent - SUB_BITS)) - 1;
+    }
+
+    /**
+     * @return - the number of latencies and their percentiles, in microseconds.
+     */
+    @Override
+    public String toString() {
+        return String.format("%s: %d, p50 %.1f us, p90 %.1f us, p99 %.1f us, max %.1f us", name, count(),
+                percentile(50) / 1000.0, percentile(90) / 1000.0, percentile(99) / 1000.0, max() / 1000.0);
+    }
+}
@@ -43,7 +43,7 @@ public class Main {
         logger = initLogger();
         ThreadLogger.logStart(logger, Thread.currentThread().getName());
         Config config = new Config(logger, "config.properties");
-        Util util = new UtilImpl(config);
+        Util util = createUtil(logger, config);
 
         Player[] players = new Player[config.players];
         UserInterface ui = null;
@@ -83,7 +83,18 @@ public class Main {
         }
     }
 
-    private static Logger initLogger() {
+    static Util createUtil(Logger logger, Config config) {
+        if (config.packedFeatures) {
+            try {
+                return new PackedUtilImpl(config);
+            } catch (IllegalArgumentException e) {
+                logger.severe("cannot use packed features: " + e.getMessage());
+            }
+        }
+        return new UtilImpl(config);
+    }
+
+    static Logger initLogger() {
 
         //just to make our log file nicer :)
         SimpleDateFormat format = new SimpleDateFormat("M-d_HH-mm-ss");
@@ -0,0 +1,74 @@
+package bguspl.set;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A clock that only moves when it is advanced (e.g. for deterministic timing tests, or for simulations that step the
+ * time themselves). Threads sleeping or parked on it wake up when it is advanced past their deadline.
+ */
+public class ManualClock implements Clock {
+
+    /**
+     * The current time in milliseconds.
+     */
+    private volatile long millis;
+
+    /**
+     * The threads sleeping or parked on the clock, unparked whenever the clock is advanced.
+     */
+    private final Set<Thread> parked = ConcurrentHashMap.newKeySet();
+
+    public ManualClock() {
+        this(0);
+    }
+
+    /**
+     * @param millis - the initial time in milliseconds.
+     */
+    public ManualClock(long millis) {
+        this.millis = millis;
+    }
+
+    @Override
+    public long millis() {
+        return millis;
+    }
+
+    /**
+     * Advances the clock and wakes up the threads sleeping or parked on it.
+     *
+     * @param millis - the number of milliseconds to advance (not negative).
+     * @throws IllegalArgumentException - if millis is negative.
+     */
+    public synchronized void advance(long millis) {
+        if (millis < 0)
+            throw new IllegalArgumentException("the clock cannot go back: " + millis);
+        this.millis += millis;
+        for (Thread thread : parked)
+            LockSupport.unpark(thread);
+    }
+
+    @Override
+    public void sleep(long millis) throws InterruptedException {
+        long deadline = this.millis + millis;
+        while (this.millis < deadline)
+            parkUntil(deadline);
+    }
+
+    @Override
+    public void parkUntil(long deadline) throws InterruptedException {
+        // registered before checking the time, so an advance is never missed
+        Thread thread = Thread.currentThread();
+        parked.add(thread);
+        try {
+            if (millis < deadline)
+                LockSupport.park(this);
+        } finally {
+            parked.remove(thread);
+        }
+        if (Thread.interrupted())
+            throw new InterruptedException();
+    }
+}
@@ -0,0 +1,229 @@
+package bguspl.set;
+
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Objects;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * An implementation of the Util interface for cards with 3 values per feature, that packs the features of a card
+ * (its base 3 digits) into a long, two bits per feature. Three cards are tested with a few bitwise operations over
+ * all the features at once, so the test takes the same time for any feature count.
+ * The searches complete every pair of cards with thirdPacked and look the completing card up in the sorted packed
+ * features of the cards, so they take O(n^2 log n) for any deck (the one-hot encoding of UtilImpl is not built). Each
+ * search allocates the sorted copy of its cards.
+ * Card ids are ints, so the deck (3 ^ featureCount cards) is limited to MAX_FEATURE_COUNT = 19 features, although a
+ * long could hold 32 packed features.
+ */
+public class PackedUtilImpl extends UtilImpl {
+
+    /**
+     * The number of bits per feature in the packed encoding.
+     */
+    private static final int BITS_PER_FEATURE = 2;
+
+    /**
+     * The lowest bit of every feature in the packed encoding.
+     */
+    private static final long LOW_BITS = 0x5555555555555555L;
+
+    /**
+     * The largest feature count whose deck size (3 ^ featureCount) fits in an int card id.
+     */
+    public static final int MAX_FEATURE_COUNT = 19;
+
+    /**
+     * The number of features that are packed at once when converting a card id (see packedChunks).
+     */
+    private static final int CHUNK_FEATURES = 8;
+
+    /**
+     * The number of card ids covered by a chunk (3 ^ CHUNK_FEATURES).
+     */
+    private static final int CHUNK_CARDS = 6561;
+
+    private final Config config;
+
+    /**
+     * The packed encoding of every number between 0 and CHUNK_CARDS - 1.
+     */
+    private final long[] packedChunks;
+
+    public PackedUtilImpl(Config config) {
+        super(config, false);
+        if (config.featureSize != 3)
+            throw new IllegalArgumentException("packed features require a feature size of 3, not " + config.featureSize);
+        if (config.featureCount > MAX_FEATURE_COUNT)
+            throw new IllegalArgumentException("a deck of " + config.featureCount + " features does not fit in int card ids (at most "
+                    + MAX_FEATURE_COUNT + " features)");
+        this.config = config;
+
+        packedChunks = new long[CHUNK_CARDS];
+        for (int chunk = 1; chunk < packedChunks.length; ++chunk)
+            packedChunks[chunk] = packedChunks[chunk / config.featureSize] << BITS_PER_FEATURE
+                    | chunk % config.featureSize;
+    }
+
+    /**
+     * Packs the features of a card into a long, two bits per feature (the last feature in the lowest bits).
+     *
+     * @param card - the card id.
+     * @return - the packed features of the card.
+     */
+    public long cardToPacked(int card) {
+        long packed = 0;
+        for (int shift = 0; card != 0; shift += CHUNK_FEATURES * BITS_PER_FEATURE) {
+            packed |= packedChunks[card % CHUNK_CARDS] << shift;
+            card /= CHUNK_CARDS;
+        }
+        return packed;
+    }
+
+    /**
+     * Finds the packed features of the card that completes two cards to a legal set: every feature that is the same
+     * in both cards stays the same, and every other feature takes the third value. Both are computed for all the
+     * features at once: for different values (00, 01 or 10) the third value is the complement of their bitwise or.
+     *
+     * @param first  - the packed features of the first card.
+     * @param second - the packed features of the second card.
+     * @return - the packed features of the completing card.
+     */
+    public static long thirdPacked(long first, long second) {
+        long different = first ^ second;
+        different = (different | different >>> 1) & LOW_BITS;
+        different |= different << 1; // both bits of every feature that is different
+        return first & ~different | ~(first | second) & different;
+    }
+
+    @Override
+    public boolean testSet(int[] cards) {
+        if (cards.length != config.featureSize) return super.testSet(cards);
+        return thirdPacked(cardToPacked(cards[0]), cardToPacked(cards[1])) == cardToPacked(cards[2]);
+    }
+
+    /**
+     * The cards of a search with their packed features, in the order of the search and sorted (packing keeps the
+     * order of the card ids, as both are the base 3 digits of the card with the first feature the most significant).
+     */
+    private class PackedCards {
+
+        final int[] cards;
+        final long[] packed;
+        final long[] sortedPacked;
+        final int[] sortedCards;
+        final int[] sortedIndex;
+
+        PackedCards(int[] cards, int length) {
+            this.cards = cards;
+            packed = new long[length];
+            long[] byCard = new long[length];
+            for (int i = 0; i < length; ++i) {
+                packed[i] = cardToPacked(cards[i]);
+                byCard[i] = (long) cards[i] << Integer.SIZE | i;
+            }
+            Arrays.sort(byCard);
+            sortedPacked = new long[length];
+            sortedCards = new int[length];
+            sortedIndex = new int[length];
+            for (int i = 0; i < length; ++i) {
+                sortedCards[i] = (int) (byCard[i] >>> Integer.SIZE);
+                sortedIndex[i] = (int) byCard[i];
+                sortedPacked[i] = cardToPacked(sortedCards[i]);
+            }
+        }
+
+        /**
+         * Finds the card that completes the cards at indices i < j to a set. Each set is found only once: by its two
+         * lowest cards.
+         *
+         * @return - the position of the completing card in the sorted cards, or -1 if it is not one of the cards or
+         * it is not higher than both cards.
+         */
+        int complete(int i, int j) {
+            long third = thirdPacked(packed[i], packed[j]);
+            if (third <= packed[i] || third <= packed[j]) return -1;
+            int position = Arrays.binarySearch(sortedPacked, third);
+            return position < 0 ? -1 : position;
+        }
+
+        /**
+         * @return - the sorted set of the cards at indices i < j completed by the card at the given position (which
+         * is the highest of the three).
+         */
+        int[] set(int i, int j, int position) {
+            return new int[]{ Math.min(cards[i], cards[j]), Math.max(cards[i], cards[j]), sortedCards[position] };
+        }
+    }
+
+    @Override
+    public List<int[]> findSets(List<Integer> deck, int count) {
+        LinkedList<int[]> sets = new LinkedList<>();
+        int[] cards = deck.stream().mapToInt(Integer::intValue).toArray();
+        PackedCards packed = new PackedCards(cards, cards.length);
+        for (int i = 0; i < cards.length && sets.size() < count; ++i)
+            for (int j = i + 1; j < cards.length && sets.size() < count; ++j) {
+                int position = packed.complete(i, j);
+                if (position >= 0) sets.add(packed.set(i, j, position));
+            }
+        return sets;
+    }
+
+    @Override
+    public int findSets(int[] cards, int length, int[] sets) {
+        int r = config.featureSize, count = sets.length / r, found = 0;
+        PackedCards packed = new PackedCards(cards, length);
+        for (int i = 0; i < length && found < count; ++i)
+            for (int j = i + 1; j < length && found < count; ++j) {
+                int position = packed.complete(i, j);
+                if (position < 0) continue;
+                sets[r * found] = Math.min(cards[i], cards[j]);
+                sets[r * found + 1] = Math.max(cards[i], cards[j]);
+                sets[r * found++ + 2] = packed.sortedCards[position];
+            }
+        return found;
+    }
+
+    @Override
+    public Stream<int[]> streamSets(int[] cards, int length) {
+        // the pairs are completed lazily, in the same order as findSets (split by the first card when parallel)
+        PackedCards packed = new PackedCards(Arrays.copyOf(cards, length), length);
+        return IntStream.range(0, length).boxed().flatMap(i -> IntStream.range(i + 1, length).mapToObj(j -> {
+            int position = packed.complete(i, j);
+            return position < 0 ? null : packed.set(i, j, position);
+        }).filter(Objects::nonNull));
+    }
+
+    @Override
+    public int countSets(int[] cards, int length, int[] setsPerCard) {
+        if (setsPerCard != null) Arrays.fill(setsPerCard, 0, length, 0);
+        PackedCards packed = new PackedCards(cards, length);
+        int sets = 0;
+        for (int i = 0; i < length; ++i)
+            for (int j = i + 1; j < length; ++j) {
+                int position = packed.complete(i, j);
+                if (position < 0) continue;
+                ++sets;
+                if (setsPerCard != null) {
+                    ++setsPerCard[i];
+                    ++setsPerCard[j];
+                    ++setsPerCard[packed.sortedIndex[position]];
+                }
+            }
+        return sets;
+    }
+
+    @Override
+    public int countSetsWith(int card, int[] cards, int length) {
+        long packedCard = cardToPacked(card);
+        PackedCards packed = new PackedCards(cards, length);
+        int sets = 0;
+        // each set is counted once, by the lower of its two cards from the array
+        for (int i = 0; i < length; ++i) {
+            long third = thirdPacked(packedCard, packed.packed[i]);
+            if (third > packed.packed[i] && Arrays.binarySearch(packed.sortedPacked, third) >= 0) ++sets;
+        }
+        return sets;
+    }
+}
@@ -0,0 +1,72 @@
+package bguspl.set;
+
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A virtual clock that runs a number of times faster than real time (e.g. for simulations): every delay of the game
+ * is compressed by the same factor, so the game behaves as it would in real time, only faster.
+ * The clock is still paced by real time: it never jumps ahead to the next deadline when the game is idle, so a game
+ * runs at most speedup times faster than in real time, rather than as fast as the CPU allows. Jumping ahead would
+ * need every blocking wait of the game (e.g. the key press queues and the table lock) to go through the clock, so it
+ * could tell when all the game's threads are waiting for it; a large speedup makes the CPU the bound instead.
+ */
+public class ScaledClock implements Clock {
+
+    /**
+     * The number of virtual milliseconds per real millisecond.
+     */
+    private final double speedup;
+
+    /**
+     * The real (monotonic) time at which the clock was started (at virtual time 0).
+     */
+    private final long startNanos;
+
+    /**
+     * @param speedup - the number of virtual milliseconds per real millisecond (at least 1).
+     * @throws IllegalArgumentException - if speedup is less than 1.
+     */
+    public ScaledClock(double speedup) {
+        if (!(speedup >= 1))
+            throw new IllegalArgumentException("the speedup must be at least 1: " + speedup);
+        this.speedup = speedup;
+        this.startNanos = System.nanoTime();
+    }
+
+    @Override
+    public long millis() {
+        return (long) ((System.nanoTime() - startNanos) * speedup / 1000000.0);
+    }
+
+    @Override
+    public void sleep(long millis) throws InterruptedException {
+        // parking, since Thread.sleep rounds the nanoseconds up to a whole millisecond
+        long wakeNanos = System.nanoTime() + realNanos(millis);
+        long nanos;
+        while ((nanos = wakeNanos - System.nanoTime()) > 0) {
+            LockSupport.parkNanos(nanos);
+            if (Thread.interrupted())
+                throw new InterruptedException();
+        }
+    }
+
+    @Override
+    public void parkUntil(long deadline) throws InterruptedException {
+        if (deadline >= NO_DEADLINE) {
+            LockSupport.park(this);
+        } else {
+            long nanos = realNanos(deadline - millis());
+            if (nanos > 0)
+                LockSupport.parkNanos(this, nanos);
+        }
+        if (Thread.interrupted())
+            throw new InterruptedException();
+    }
+
+    /**
+     * Converts virtual milliseconds to real nanoseconds.
+     */
+    private long realNanos(long millis) {
+        return millis <= 0 ? 0 : Math.max(1, (long) (millis * 1000000.0 / speedup));
+    }
+}
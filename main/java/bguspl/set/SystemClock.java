@@ -0,0 +1,39 @@
+package bguspl.set;
+
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * The real time clock. The time is monotonic (measured with System.nanoTime, from the time the class was loaded),
+ * so deadlines are not affected by changes of the wall clock.
+ */
+public class SystemClock implements Clock {
+
+    /**
+     * The time (of System.nanoTime) that millis() counts from.
+     */
+    private static final long ORIGIN_NANOS = System.nanoTime();
+
+    @Override
+    public long millis() {
+        return (System.nanoTime() - ORIGIN_NANOS) / 1000000;
+    }
+
+    @Override
+    public void sleep(long millis) throws InterruptedException {
+        if (millis > 0)
+            Thread.sleep(millis);
+    }
+
+    @Override
+    public void parkUntil(long deadline) throws InterruptedException {
+        if (deadline >= NO_DEADLINE) {
+            LockSupport.park(this);
+        } else {
+            long nanos = deadline * 1000000 - (System.nanoTime() - ORIGIN_NANOS);
+            if (nanos > 0)
+                LockSupport.parkNanos(this, nanos);
+        }
+        if (Thread.interrupted())
+            throw new InterruptedException();
+    }
+}
@@ -0,0 +1,55 @@
+package bguspl.set;
+
+/**
+ * A user interface that shows nothing, for games without a display (e.g. games run by the GameHost).
+ */
+public class UserInterfaceHeadless implements UserInterface {
+
+    @Override
+    public void placeCard(int card, int slot) {
+    }
+
+    @Override
+    public void removeCard(int slot) {
+    }
+
+    @Override
+    public void placeToken(int player, int slot) {
+    }
+
+    @Override
+    public void removeTokens() {
+    }
+
+    @Override
+    public void removeTokens(int slot) {
+    }
+
+    @Override
+    public void removeToken(int player, int slot) {
+    }
+
+    @Override
+    public void setCountdown(long millies, boolean warn) {
+    }
+
+    @Override
+    public void setElapsed(long millies) {
+    }
+
+    @Override
+    public void setFreeze(int player, long millies) {
+    }
+
+    @Override
+    public void setScore(int player, int score) {
+    }
+
+    @Override
+    public void announceWinner(int[] players) {
+    }
+
+    @Override
+    public void dispose() {
+    }
+}
@@ -1,6 +1,7 @@
 package bguspl.set;
 
 import java.util.List;
+import java.util.stream.Stream;
 
 /**
  * An interface for general utilities provided for convenience.
@@ -23,6 +24,17 @@ public interface Util {
      */
     int[][] cardsToFeatures(int[] cards);
 
+    /**
+     * Returns the compact feature encoding of a card, precomputed once for the whole deck. Each feature takes
+     * config.featureSize bits, of which only the bit at the index of the feature value is on.
+     *
+     * @param card - the card id.
+     * @return - the feature bits of the card.
+     * @throws UnsupportedOperationException - if config.featureSize * config.featureCount is more than 64 (or the
+     *                                       deck is too large to precompute).
+     */
+    long cardToFeatureBits(int card);
+
     /**
      * Checks if an array of cards forms a legal set.
      *
@@ -40,6 +52,48 @@ public interface Util {
      */
     List<int[]> findSets(List<Integer> deck, int count);
 
+    /**
+     * Finds sets in the first length cards of the given array, without allocating any objects.
+     * The number of sets to find is determined by the size of the output buffer.
+     *
+     * @param cards  - an array of card ids.
+     * @param length - the number of cards to search in.
+     * @param sets   - the output buffer: the card ids of the i-th set found (sorted) are written to
+     *               sets[i * config.featureSize] to sets[(i + 1) * config.featureSize - 1].
+     * @return - the number of sets found (at most sets.length / config.featureSize).
+     */
+    int findSets(int[] cards, int length, int[] sets);
+
+    /**
+     * Returns a lazy stream of the sets in the first length cards of the given array. The sets are found as they are
+     * consumed, so a short-circuiting operation stops the search, and the stream may be made parallel.
+     *
+     * @param cards  - an array of card ids (copied, so it may be changed after the call).
+     * @param length - the number of cards to search in.
+     * @return - a stream of integer arrays, each one contains the sorted card ids of a legal set.
+     */
+    Stream<int[]> streamSets(int[] cards, int length);
+
+    /**
+     * Counts the sets in the first length cards of the given array, without creating them.
+     *
+     * @param cards       - an array of card ids.
+     * @param length      - the number of cards to search in.
+     * @param setsPerCard - if not null, setsPerCard[i] is set to the number of sets that cards[i] belongs to.
+     * @return - the number of sets found.
+     */
+    int countSets(int[] cards, int length, int[] setsPerCard);
+
+    /**
+     * Counts the sets that contain the given card and config.featureSize - 1 of the first length cards of the array.
+     *
+     * @param card   - a card id (not in the array).
+     * @param cards  - an array of card ids.
+     * @param length - the number of cards to search in.
+     * @return - the number of sets found.
+     */
+    int countSetsWith(int card, int[] cards, int length);
+
     /**
      * Spin a random number of times (for debugging/testing).
      */
@@ -1,10 +1,17 @@
 package bguspl.set;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Spliterator;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Consumer;
 import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * The implementation of the UserInterface interface.
@@ -13,8 +20,100 @@ public class UtilImpl implements Util {
 
     private final Config config;
 
+    /**
+     * The largest deck for which the compact feature encoding is precomputed.
+     */
+    private static final int MAX_ENCODED_DECK_SIZE = 1 << 22;
+
+    /**
+     * The compact feature encoding of every card in the deck (see cardToFeatureBits), or null if the features do
+     * not fit in a long or the deck is too large.
+     */
+    private final long[] featureBits;
+
+    /**
+     * A mask of the lowest config.featureSize bits (i.e. a single feature in the compact encoding).
+     */
+    private final long featureMask;
+
+    /**
+     * Reusable per-thread buffers of the set search (so a search does not allocate).
+     */
+    private final ThreadLocal<Scratch> scratch = ThreadLocal.withInitial(Scratch::new);
+
+    private class Scratch implements SetSink {
+        final int[] combination = new int[config.featureSize];
+        final int[] set = new int[config.featureSize];
+
+        // the buffers of the size of the deck are allocated on first use, since most threads need one at most
+        private long[] present;
+        private int[] index;
+
+        /**
+         * A bitmap of the cards of the current search (all clear between searches).
+         */
+        long[] present() {
+            if (present == null) present = new long[(config.deckSize + Long.SIZE - 1) / Long.SIZE];
+            return present;
+        }
+
+        /**
+         * The index (plus one) of every card of the current search, only for counting the sets per card (all zero
+         * between searches).
+         */
+        int[] index() {
+            if (index == null) index = new int[config.deckSize];
+            return index;
+        }
+
+        // the output of the current search
+        int count;
+        int setsFound;
+        int[] sets;
+        List<int[]> found;
+
+        void start(int count, int[] sets, List<int[]> found) {
+            this.count = count;
+            this.sets = sets;
+            this.found = found;
+            setsFound = 0;
+        }
+
+        int finish() {
+            sets = null;
+            found = null;
+            return setsFound;
+        }
+
+        @Override
+        public boolean add(int[] set) {
+            if (sets != null) System.arraycopy(set, 0, sets, setsFound * set.length, set.length);
+            if (found != null) found.add(set.clone());
+            return ++setsFound < count;
+        }
+    }
+
     public UtilImpl(Config config) {
+        this(config, true);
+    }
+
+    /**
+     * @param encodeFeatures - false to skip the compact feature encoding (for a subclass with its own encoding, whose
+     *                       searches do not use it).
+     */
+    protected UtilImpl(Config config, boolean encodeFeatures) {
         this.config = config;
+        featureMask = (1L << config.featureSize) - 1;
+        if (encodeFeatures && config.featureSize * config.featureCount <= Long.SIZE
+                && config.deckSize <= MAX_ENCODED_DECK_SIZE) {
+            featureBits = new long[config.deckSize];
+            int[] features = new int[config.featureCount];
+            for (int card = 0; card < config.deckSize; ++card) {
+                cardToFeatures(card, features);
+                for (int i = 0; i < config.featureCount; ++i)
+                    featureBits[card] |= 1L << (i * config.featureSize + features[i]);
+            }
+        } else featureBits = null;
     }
 
     private void cardToFeatures(int card, int[] features) {
@@ -38,8 +137,37 @@ public class UtilImpl implements Util {
         return features;
     }
 
+    @Override
+    public long cardToFeatureBits(int card) {
+        if (featureBits == null)
+            throw new UnsupportedOperationException("the features of the cards are not precomputed for this deck");
+        return featureBits[card];
+    }
+
     @Override
     public boolean testSet(int[] cards) {
+        if (featureBits == null || cards.length < 2) return testSetByFeatures(cards);
+
+        // a feature is sameSame iff exactly one of its bits is on, and butDifferent iff one bit per card is on
+        long bits = 0;
+        for (int card : cards)
+            bits |= featureBits[card];
+        for (int i = 0; i < config.featureCount; ++i) {
+            int values = Long.bitCount(bits & featureMask);
+            if (values != 1 && values != cards.length) return false;
+            bits >>>= config.featureSize;
+        }
+        return true;
+    }
+
+    /**
+     * Checks if an array of cards forms a legal set by comparing the decoded features of the cards.
+     * Used when the compact encoding is not available (and by the benchmarks as a reference).
+     *
+     * @param cards - the array of cards.
+     * @return - true iff the array forms a legal set.
+     */
+    boolean testSetByFeatures(int[] cards) {
         int[][] features = cardsToFeatures(Arrays.copyOf(cards, cards.length));
         for (int i = 0; i < config.featureCount; ++i) {
             boolean sameSame = true, butDifferent = true;
@@ -66,6 +194,444 @@ public class UtilImpl implements Util {
 
     @Override
     public List<int[]> findSets(List<Integer> deck, int count) {
+        LinkedList<int[]> sets = new LinkedList<>();
+        int[] cards = deck.stream().mapToInt(Integer::intValue).toArray();
+        search(cards, cards.length, count, null, sets);
+        return sets;
+    }
+
+    @Override
+    public int findSets(int[] cards, int length, int[] sets) {
+        return search(cards, length, sets.length / config.featureSize, sets, null);
+    }
+
+    @Override
+    public Stream<int[]> streamSets(int[] cards, int length) {
+        int r = config.featureSize;
+        if (featureBits == null || r < 3 || length < r) {
+            List<int[]> sets = new ArrayList<>();
+            search(cards, length, Integer.MAX_VALUE, null, sets);
+            return sets.stream();
+        }
+        return StreamSupport.stream(new SetSpliterator(Arrays.copyOf(cards, length)), false);
+    }
+
+    /**
+     * A lazy set search: the combinations are completed one at a time, as the sets are consumed. The combinations are
+     * split by the index of their first card, so that both parts have about the same number of pairs of cards.
+     */
+    private class SetSpliterator implements Spliterator<int[]> {
+
+        private final int[] cards;
+        private final long[] present;
+
+        /**
+         * The next combination to complete.
+         */
+        private final int[] combination;
+
+        /**
+         * The index after the last first card of the combinations of this spliterator.
+         */
+        private int last;
+
+        SetSpliterator(int[] cards) {
+            this(cards, new long[(config.deckSize + Long.SIZE - 1) / Long.SIZE], 0, cards.length);
+            for (int card : cards)
+                present[card / Long.SIZE] |= 1L << card;
+        }
+
+        private SetSpliterator(int[] cards, long[] present, int first, int last) {
+            this.cards = cards;
+            this.present = present;
+            this.last = last;
+            combination = new int[config.featureSize - 1];
+            for (int i = 0; i < combination.length; ++i)
+                combination[i] = first + i;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super int[]> action) {
+            int[] set = new int[config.featureSize];
+            while (combination[0] < last && combination[combination.length - 1] < cards.length) {
+                boolean found = completeCombination(cards, present, combination, set);
+                nextCombination(combination, cards.length);
+                if (found) {
+                    action.accept(set);
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        @Override
+        public Spliterator<int[]> trySplit() {
+            // the first cards from first to middle have about as many pairs as the first cards from middle to last
+            int first = combination[0] + 1, n = cards.length;
+            int middle = n - (int) Math.sqrt(((double) (n - first) * (n - first) + (double) (n - last) * (n - last)) / 2);
+            if (middle <= first || middle >= last) return null;
+            SetSpliterator split = new SetSpliterator(cards, present, middle, last);
+            last = middle;
+            return split;
+        }
+
+        @Override
+        public long estimateSize() {
+            // the number of pairs left (an upper bound for the number of sets when r == 3)
+            int first = combination[0], n = cards.length;
+            return first >= last ? 0 : (long) (last - first) * (2 * n - first - last - 1) / 2;
+        }
+
+        @Override
+        public int characteristics() {
+            return ORDERED | DISTINCT | NONNULL | IMMUTABLE;
+        }
+    }
+
+    /**
+     * Receives the sets found by a search.
+     */
+    private interface SetSink {
+
+        /**
+         * @param set - the cards of the set found (the array is reused by the search).
+         * @return - true iff the search should go on.
+         */
+        boolean add(int[] set);
+    }
+
+    /**
+     * Finds up to count sets in the first length cards of the array.
+     *
+     * @param sets  - if not null, the cards of the i-th set found are written to sets[i * r .. (i + 1) * r - 1].
+     * @param found - if not null, a new sorted array is added to it for every set found.
+     * @return - the number of sets found.
+     */
+    private int search(int[] cards, int length, int count, int[] sets, List<int[]> found) {
+        int r = config.featureSize;
+        if (count <= 0 || length < r) return 0;
+        Scratch scratch = this.scratch.get();
+        scratch.start(count, sets, found);
+        if (featureBits == null || r < 3) {
+            searchCombinations(cards, length, scratch);
+            return scratch.finish();
+        }
+
+        long[] present = scratch.present();
+        for (int i = 0; i < length; ++i)
+            present[cards[i] / Long.SIZE] |= 1L << cards[i];
+
+        if (config.setSearchParallelism > 1 && length >= config.parallelSetSearchThreshold) {
+            // the workers only read the presence bitmap, and are done with it once invoke returns
+            SetSearchTask task = new SetSearchTask(cards, length, present, 0, length, config.setSearchParallelism,
+                    count);
+            ForkJoinPool.commonPool().invoke(task);
+            for (int[] set : task.results) {
+                if (!scratch.add(set)) break;
+            }
+        } else completeCombinations(cards, length, present, 0, length, scratch.combination, scratch.set, scratch);
+
+        for (int i = 0; i < length; ++i)
+            present[cards[i] / Long.SIZE] = 0;
+        return scratch.finish();
+    }
+
+    /**
+     * Finds sets by completing the (r - 1)-combinations of the cards whose first card is at an index between first
+     * (inclusive) and last (exclusive).
+     */
+    private void completeCombinations(int[] cards, int length, long[] present, int first, int last,
+                                      int[] combination, int[] set, SetSink sink) {
+        int r = config.featureSize;
+        for (int i = 0; i < r - 1; ++i)
+            combination[i] = first + i;
+
+        while (combination[0] < last && combination[r - 2] < length) {
+            if (completeCombination(cards, present, combination, set) && !sink.add(set)) return;
+            nextCombination(combination, length);
+        }
+    }
+
+    /**
+     * Every r - 1 cards determine the single card that completes them to a set, so it is enough to look the
+     * completing card up in the presence bitmap. Each set is reported only once: by its r - 1 lowest cards.
+     *
+     * @param combination - the indices of r - 1 cards.
+     * @param set         - the output: the sorted set, if one was found.
+     * @return - true iff the completing card is present and higher than the other cards.
+     */
+    private boolean completeCombination(int[] cards, long[] present, int[] combination, int[] set) {
+        int r = config.featureSize;
+        long bits = 0;
+        int max = -1;
+        for (int i = 0; i < r - 1; ++i) {
+            bits |= featureBits[cards[combination[i]]];
+            max = Math.max(max, cards[combination[i]]);
+        }
+
+        int completion = completeSet(bits, r - 1);
+        if (completion <= max || (present[completion / Long.SIZE] & 1L << completion) == 0) return false;
+        for (int i = 0; i < r - 1; ++i)
+            set[i] = cards[combination[i]];
+        set[r - 1] = completion;
+        Arrays.sort(set);
+        return true;
+    }
+
+    /**
+     * Generates the next (r - 1)-combination of the indices 0 to length - 1 in lexicographic order.
+     */
+    private void nextCombination(int[] combination, int length) {
+        int r = config.featureSize;
+        int t = r - 2;
+        while (t != 0 && combination[t] == length - r + 1 + t) --t;
+        combination[t]++;
+        for (int i = t + 1; i < r - 1; i++) combination[i] = combination[i - 1] + 1;
+    }
+
+    /**
+     * Finds sets by testing every r-combination of the cards (used when the pairs cannot be completed).
+     */
+    private void searchCombinations(int[] cards, int length, Scratch scratch) {
+        int r = config.featureSize;
+        int[] combination = scratch.combination;
+        int[] set = scratch.set;
+        for (int i = 0; i < r; ++i)
+            combination[i] = i;
+
+        while (combination[r - 1] < length) {
+            for (int i = 0; i < r; ++i)
+                set[i] = cards[combination[i]];
+            if (testSet(set)) {
+                Arrays.sort(set);
+                if (!scratch.add(set)) return;
+            }
+
+            // generate next combination in lexicographic order
+            int t = r - 1;
+            while (t != 0 && combination[t] == length - r + t) --t;
+            combination[t]++;
+            for (int i = t + 1; i < r; i++) combination[i] = combination[i - 1] + 1;
+        }
+    }
+
+    /**
+     * A parallel set search on the common pool: the combinations are split by the index of their first card into
+     * halves with about as many pairs of cards, until there are config.setSearchParallelism tasks or a task has at most
+     * LEAF_PAIRS pairs to go over. The results are kept in the order of the sequential search: each task stops at
+     * count sets of its own, and the merge keeps the first count, so a limited search returns the same sets as the
+     * sequential one (whatever the order the tasks run in).
+     */
+    @SuppressWarnings("serial") // the tasks are never serialized
+    private class SetSearchTask extends RecursiveAction {
+
+        private static final int LEAF_PAIRS = 1 << 14;
+
+        private final int[] cards;
+        private final int length;
+        private final long[] present;
+        private final int first;
+        private final int last;
+        private final int parallelism;
+        private final int count;
+        private List<int[]> results = new ArrayList<>();
+
+        SetSearchTask(int[] cards, int length, long[] present, int first, int last, int parallelism, int count) {
+            this.cards = cards;
+            this.length = length;
+            this.present = present;
+            this.first = first;
+            this.last = last;
+            this.parallelism = parallelism;
+            this.count = count;
+        }
+
+        @Override
+        protected void compute() {
+            long pairs = pairs(last);
+            if (parallelism > 1 && last - first > 1 && pairs > LEAF_PAIRS) {
+                // the first cards have more pairs, so the middle is where half of the pairs are
+                int low = first + 1, high = last - 1;
+                while (low < high) {
+                    int middle = (low + high) >>> 1;
+                    if (2 * pairs(middle) < pairs) low = middle + 1;
+                    else high = middle;
+                }
+                int half = parallelism / 2;
+                SetSearchTask left = new SetSearchTask(cards, length, present, first, low, parallelism - half, count);
+                SetSearchTask right = new SetSearchTask(cards, length, present, low, last, half, count);
+                invokeAll(left, right);
+                results = left.results;
+                results.addAll(right.results.subList(0, Math.min(right.results.size(), count - results.size())));
+            } else {
+                completeCombinations(cards, length, present, first, last, new int[config.featureSize],
+                        new int[config.featureSize], set -> {
+                            results.add(set.clone());
+                            return results.size() < count;
+                        });
+            }
+        }
+
+        /**
+         * @return - the number of pairs whose first card is at an index between first (inclusive) and end (exclusive).
+         */
+        private long pairs(int end) {
+            return (long) (end - first) * (2 * length - first - end - 1) / 2;
+        }
+    }
+
+    @Override
+    public int countSets(int[] cards, int length, int[] setsPerCard) {
+        int r = config.featureSize;
+        if (setsPerCard != null) Arrays.fill(setsPerCard, 0, length, 0);
+        if (r < 2 || length < r) return 0;
+        Scratch scratch = this.scratch.get();
+        int[] combination = scratch.combination;
+        int sets = 0;
+
+        if (featureBits == null || r < 3) {
+            int[] set = scratch.set;
+            for (int i = 0; i < r; ++i)
+                combination[i] = i;
+            while (combination[r - 1] < length) {
+                for (int i = 0; i < r; ++i)
+                    set[i] = cards[combination[i]];
+                if (testSet(set)) {
+                    ++sets;
+                    if (setsPerCard != null)
+                        for (int i = 0; i < r; ++i)
+                            ++setsPerCard[combination[i]];
+                }
+
+                int t = r - 1;
+                while (t != 0 && combination[t] == length - r + t) --t;
+                combination[t]++;
+                for (int i = t + 1; i < r; i++) combination[i] = combination[i - 1] + 1;
+            }
+            return sets;
+        }
+
+        // the index (plus one) of every card in the array, so the completing card can be counted too (without the
+        // counts per card, the presence bitmap is enough)
+        long[] present = setsPerCard == null ? scratch.present() : null;
+        int[] index = setsPerCard == null ? null : scratch.index();
+        for (int i = 0; i < length; ++i) {
+            if (index == null) present[cards[i] / Long.SIZE] |= 1L << cards[i];
+            else index[cards[i]] = i + 1;
+        }
+
+        for (int i = 0; i < r - 1; ++i)
+            combination[i] = i;
+        while (combination[r - 2] < length) {
+            long bits = 0;
+            int max = -1;
+            for (int i = 0; i < r - 1; ++i) {
+                bits |= featureBits[cards[combination[i]]];
+                max = Math.max(max, cards[combination[i]]);
+            }
+            // completion is -1 if no card completes the combination, so it is checked before the lookup
+            int completion = completeSet(bits, r - 1);
+            if (completion > max && (index == null ? (present[completion / Long.SIZE] & 1L << completion) != 0
+                    : index[completion] != 0)) {
+                ++sets;
+                if (setsPerCard != null) {
+                    for (int i = 0; i < r - 1; ++i)
+                        ++setsPerCard[combination[i]];
+                    ++setsPerCard[index[completion] - 1];
+                }
+            }
+            nextCombination(combination, length);
+        }
+
+        for (int i = 0; i < length; ++i) {
+            if (index == null) present[cards[i] / Long.SIZE] = 0;
+            else index[cards[i]] = 0;
+        }
+        return sets;
+    }
+
+    @Override
+    public int countSetsWith(int card, int[] cards, int length) {
+        int r = config.featureSize;
+        if (r < 2 || length < r - 1) return 0;
+        Scratch scratch = this.scratch.get();
+        int[] combination = scratch.combination;
+        int sets = 0;
+
+        if (featureBits == null || r < 3) {
+            // test every (r - 1)-combination of the cards together with the given card
+            int[] set = scratch.set;
+            set[r - 1] = card;
+            for (int i = 0; i < r - 1; ++i)
+                combination[i] = i;
+            while (combination[r - 2] < length) {
+                for (int i = 0; i < r - 1; ++i)
+                    set[i] = cards[combination[i]];
+                if (testSet(set)) ++sets;
+
+                int t = r - 2;
+                while (t != 0 && combination[t] == length - r + 1 + t) --t;
+                combination[t]++;
+                for (int i = t + 1; i < r - 1; i++) combination[i] = combination[i - 1] + 1;
+            }
+            return sets;
+        }
+
+        long[] present = scratch.present();
+        for (int i = 0; i < length; ++i)
+            present[cards[i] / Long.SIZE] |= 1L << cards[i];
+
+        // complete every (r - 2)-combination of the cards together with the given card; each set is counted once,
+        // when the completing card is the highest of the set's cards from the array
+        for (int i = 0; i < r - 2; ++i)
+            combination[i] = i;
+        while (combination[r - 3] < length) {
+            long bits = featureBits[card];
+            int max = -1;
+            for (int i = 0; i < r - 2; ++i) {
+                bits |= featureBits[cards[combination[i]]];
+                max = Math.max(max, cards[combination[i]]);
+            }
+            int completion = completeSet(bits, r - 1);
+            if (completion > max && completion != card && (present[completion / Long.SIZE] & 1L << completion) != 0)
+                ++sets;
+
+            int t = r - 3;
+            while (t != 0 && combination[t] == length - r + 2 + t) --t;
+            combination[t]++;
+            for (int i = t + 1; i < r - 2; i++) combination[i] = combination[i - 1] + 1;
+        }
+
+        for (int i = 0; i < length; ++i)
+            present[cards[i] / Long.SIZE] = 0;
+        return sets;
+    }
+
+    /**
+     * Finds the card that completes some cards to a legal set: every feature that is the same in all the cards stays
+     * the same, and every feature that is different in all the cards takes the single value they are missing.
+     *
+     * @param bits  - the feature bits of the cards or-ed together.
+     * @param cards - the number of cards (config.featureSize - 1).
+     * @return - the id of the completing card, or -1 if there is none.
+     */
+    private int completeSet(long bits, int cards) {
+        int card = 0;
+        for (int i = 0; i < config.featureCount; ++i) {
+            long feature = bits >>> (i * config.featureSize) & featureMask;
+            int values = Long.bitCount(feature);
+            if (values == cards) feature = ~feature & featureMask;
+            else if (values != 1) return -1;
+            card = card * config.featureSize + Long.numberOfTrailingZeros(feature);
+        }
+        return card;
+    }
+
+    /**
+     * Finds sets by testing every r-combination of the given cards (r = config.featureSize).
+     * Used when the compact encoding is not available (and by the benchmarks as a reference).
+     */
+    List<int[]> findSetsByCombinations(List<Integer> deck, int count) {
         LinkedList<int[]> sets = new LinkedList<>();
         int n = deck.size();
         int r = config.featureSize;
@@ -1,14 +1,13 @@
 package bguspl.set.ex;
 
 import bguspl.set.Env;
+import bguspl.set.LatencyHistogram;
 
 import java.util.ArrayList;
-import java.util.Collections;
-import java.util.LinkedList;
 import java.util.List;
+import java.util.SplittableRandom;
 import java.util.concurrent.LinkedBlockingQueue;
-import java.util.stream.Collectors;
-import java.util.stream.IntStream;
+import java.util.concurrent.locks.LockSupport;
 
 /**
  * This class manages the dealer's threads and data
@@ -27,9 +26,16 @@ public class Dealer implements Runnable {
     private final Player[] players;
 
     /**
-     * The list of card ids that are left in the dealer's deck.
+     * The random source of the dealer (the deck and the slots cards are dealt to),
+     * and its seed (config.randomSeed unless given to the constructor).
      */
-    protected final List<Integer> deck;
+    private final SplittableRandom random;
+    private final long randomSeed;
+
+    /**
+     * The card ids that are left in the dealer's deck.
+     */
+    protected final DrawPile deck;
 
     /**
      * True iff game should be terminated.
@@ -44,20 +50,33 @@ public class Dealer implements Runnable {
     // We added:
 
     /**
-     * object to lock the dealer class.
+     * object to lock the dealer (one per dealer, so games in the same process do
+     * not share it).
      */
-    public static Object dealerKey;
+    public final Object dealerKey;
 
     /**
      * Queue of players IDs that want the dealer to cheack their sets.
+     * A player has at most two ids queued: its claim, and an id left from a claim released by a reshuffle
+     * (see removeAllCardsFromTable).
      */
     public LinkedBlockingQueue<Integer> setsCheck;
 
     /**
-     * the amount of time the dealer sleep if not waken in sleepUntilWokenOrTimeout
-     * function.
+     * The dealer thread (unparked by submitClaim).
+     */
+    private volatile Thread dealerThread;
+
+    /**
+     * The interval between countdown redraws once the warning time is reached (the display shows hundredths).
      */
-    private long dealerTickingTime;
+    private static final long WARN_TICK_MILLIS = 10;
+
+    /**
+     * The time of the last action (reshuffle or set collected), for the elapsed
+     * timer (config.turnTimeoutMillis == 0).
+     */
+    private long lastActionTime;
 
     /**
      * true iff the time on the clock should appear in red(in accordance to config
@@ -68,23 +87,58 @@ public class Dealer implements Runnable {
     /**
      * true iff the dealer allow playing
      */
-    public boolean allowPlaying;
+    public volatile boolean allowPlaying;
 
     /**
      * representing the size of legal set
      */
     public static final int SET_SIZE = 3;
 
+    /**
+     * The latencies of the players' claims, by stage: waiting in setsCheck,
+     * verified by the dealer, waking the player up, and from the third token
+     * until the player plays again.
+     */
+    public final LatencyHistogram claimQueueLatency = new LatencyHistogram("claim queue");
+    public final LatencyHistogram claimVerifyLatency = new LatencyHistogram("claim verification");
+    public final LatencyHistogram claimWakeUpLatency = new LatencyHistogram("player wake-up");
+    public final LatencyHistogram claimTotalLatency = new LatencyHistogram("claim to play");
+
+    /**
+     * The latencies of the players' tokens, from the key press until the token is placed or removed.
+     */
+    public final LatencyHistogram tokenLatency = new LatencyHistogram("key press to token");
+
+    /**
+     * The cards still in the game (in the deck or on the table) and the number of sets among them.
+     */
+    protected final SetTracker gameCards;
+
+    /**
+     * The times the players' freeze displays are due to change (a shown second passes or the freeze ends).
+     */
+    private final FreezeTimers freezeTimers;
+
     public Dealer(Env env, Table table, Player[] players) {
+        this(env, table, players, env.config.randomSeed);
+    }
+
+    /**
+     * @param randomSeed - the seed of the game (e.g. a different one for each game of a GameHost).
+     */
+    public Dealer(Env env, Table table, Player[] players, long randomSeed) {
         this.env = env;
         this.table = table;
         this.players = players;
-        deck = IntStream.range(0, env.config.deckSize).boxed().collect(Collectors.toList());
-        setsCheck = new LinkedBlockingQueue<Integer>(env.config.players);
+        this.randomSeed = randomSeed;
+        random = new SplittableRandom(randomSeed);
+        deck = new DrawPile(env.config.deckSize, random);
+        setsCheck = new LinkedBlockingQueue<Integer>(2 * env.config.players);
         dealerKey = new Object();
-        dealerTickingTime = 1000;
         warn = false;
         allowPlaying = false;
+        gameCards = new SetTracker(env);
+        freezeTimers = new FreezeTimers(players.length);
     }
 
     /**
@@ -92,24 +146,35 @@ public class Dealer implements Runnable {
      */
     @Override
     public void run() {
+        dealerThread = Thread.currentThread();
         env.logger.info("thread " + Thread.currentThread().getName() + " starting.");
+        env.logger.info("random seed: " + randomSeed);
         // creating the players threads:
         for (int i = 0; i < players.length; i++) {
-            Thread player = new Thread(players[i], "player" + i);
+            // split in the players order, so a seeded game repeats:
+            players[i].random = random.split();
+            Thread player = env.threads.newThread(players[i]);
+            player.setName("player" + i);
+            // set before starting, so a game that ends at once can still interrupt and join it:
+            players[i].playerThread = player;
             player.start();
         }
-        Collections.shuffle(deck);
         while (!shouldFinish()) {
             placeCardsOnTable();
             allowPlaying = true;
+            for (Player player : players)
+                player.wakeAi();
             timerLoop();
             updateTimerDisplay(false);
             removeAllCardsFromTable();
         }
+        table.finishAnimations();
+        env.logger.info(claimLatencies());
+        env.logger.info(tokenLatency.toString());
         announceWinners();
         terminate();
         try {
-            Thread.sleep(env.config.endGamePauseMillies);
+            env.clock.sleep(env.config.endGamePauseMillies);
         } catch (InterruptedException ex) {
         }
         env.logger.info("thread " + Thread.currentThread().getName() + " terminated.");
@@ -117,19 +182,23 @@ public class Dealer implements Runnable {
 
     /**
      * The inner loop of the dealer thread that runs as long as the countdown did
-     * not time out.
+     * not time out. The dealer sleeps until the next deadline (see nextWakeTime)
+     * and only touches the table when a player has submitted a claim.
      */
     private void timerLoop() {
-        reshuffleTime = System.currentTimeMillis() + env.config.turnTimeoutMillis + 1000;
-        dealerTickingTime = 1000;
-        warn = false;
-        while (!terminate && System.currentTimeMillis() < reshuffleTime) {
-            sleepUntilWokenOrTimeout();
+        updateTimerDisplay(true);
+        if (!anySetsOnBoard()) {
+            return;
+        }
+        while (!terminate && env.clock.millis() < reshuffleTime) {
+            boolean claimed = sleepUntilWokenOrTimeout();
             updateTimerDisplay(false);
-            removeCardsFromTable();
-            placeCardsOnTable();
-            if (!anySetsOnBoard()) {
-                break;
+            if (claimed) {
+                removeCardsFromTable();
+                placeCardsOnTable();
+                if (!anySetsOnBoard()) {
+                    break;
+                }
             }
         }
     }
@@ -141,10 +210,11 @@ public class Dealer implements Runnable {
         try {
             for (int i = env.config.players - 1; i >= 0; i--) {
                 players[i].terminate();
-                players[i].playerThread.interrupt();
                 players[i].playerThread.join();
             }
             terminate = true;
+            // waking the dealer thread (it may be parked without a deadline, e.g. with no countdown):
+            LockSupport.unpark(dealerThread);
         } catch (InterruptedException ignored) {
         }
     }
@@ -155,61 +225,155 @@ public class Dealer implements Runnable {
      * @return true iff the game should be finished.
      */
     private boolean shouldFinish() {
-        return terminate || env.util.findSets(deck, 1).size() == 0;
+        return terminate || gameCards.sets() == 0;
     }
 
     /**
      * Checks cards should be removed from the table and removes them.
+     * All the pending claims are verified as one batch, in the order they arrived:
+     * a claim that uses a card already taken by an earlier claim of the batch is
+     * rejected without a penalty, and the cards of all the legal sets are removed
+     * together (the dealer deals their replacements once afterwards).
+     * Only the players that are waiting for a decision have a claim, and each one
+     * is judged once: an id can be left in the queue by a player that a reshuffle
+     * released between setting its flag and queueing its id.
      */
     protected void removeCardsFromTable() {
-        synchronized (setsCheck) {
-            while (!setsCheck.isEmpty()) {
-                int playerId = setsCheck.poll();
-                // moving the cards marked as tokened to a new simple array:
-                int cardsTockendByPlayer[] = new int[SET_SIZE];
-                int slotsTockendByPlayer[] = new int[SET_SIZE];
-                boolean nullFound = false;
-                for (int i = 0; i < SET_SIZE; i++) {
-                    if (!players[playerId].slotTokenQ.isEmpty()) {
-                        Integer slotPolled = players[playerId].slotTokenQ.poll();
-                        slotsTockendByPlayer[i] = slotPolled;
-                        cardsTockendByPlayer[i] = table.slotToCard[slotPolled];
-                    } else {
-                        nullFound = true;
-                    }
+        List<Integer> queued = new ArrayList<Integer>(setsCheck.size());
+        setsCheck.drainTo(queued);
+        List<Integer> claimants = new ArrayList<Integer>(queued.size());
+        boolean[] claiming = new boolean[players.length];
+        for (int playerId : queued) {
+            if (!claiming[playerId] && players[playerId].waitForDealerDecision) {
+                claiming[playerId] = true;
+                claimants.add(playerId);
+            }
+        }
+        if (claimants.isEmpty()) {
+            return;
+        }
+        long drainedNanos = System.nanoTime();
+        for (int playerId : claimants) {
+            claimQueueLatency.record(drainedNanos - players[playerId].claimSubmittedNanos);
+        }
+        boolean[] claimedSlots = new boolean[env.config.tableSize];
+        int[] slotsToRemove = new int[claimants.size() * SET_SIZE];
+        int slotsToRemoveCount = 0;
+        int[] claimedCards = new int[SET_SIZE];
+        int[] slotsOfClaim = new int[SET_SIZE];
+        for (int playerId : claimants) {
+            // reading the player's tokens (they stay in the queue until the cards are removed):
+            Player player = players[playerId];
+            int tokens = 0;
+            boolean stale = false;
+            for (Integer slot : player.slotTokenQ) {
+                if (tokens == SET_SIZE) {
+                    break;
                 }
-                // if we found a set:
-                if (env.util.testSet(cardsTockendByPlayer) && !nullFound) {
-                    players[playerId].point();
-                    // restarting the timers:
-                    reshuffleTime = System.currentTimeMillis() + env.config.turnTimeoutMillis + 1000;
-                    dealerTickingTime = 1000;
-                    warn = false;
-                    // removing the cards and ui tokens:
-                    synchronized (table) {
-                        for (int i = 0; i < SET_SIZE; i++) {
-                            table.removeCard(slotsTockendByPlayer[i]);
-                            // removing the slots from the players token list:
-                            for (Player player : players) {
-                                player.slotTokenQ.remove(slotsTockendByPlayer[i]);
-                            }
-
-                        }
-                    }
+                Integer card = table.slotToCard[slot];
+                if (card == null || player.tokenVersions.get(slot) != table.slotVersion(slot)) {
+                    // the token was placed on a card that is gone:
+                    dropToken(player, slot);
+                    stale = true;
+                } else if (claimedSlots[slot]) {
+                    stale = true;
+                } else {
+                    claimedCards[tokens] = card;
                 }
-                // if we didn't find set:
-                else if (!env.util.testSet(cardsTockendByPlayer)) {
-                    // returning the player token Q and penalty:
-                    for (int i = 0; i < SET_SIZE; i++) {
-                        players[playerId].slotTokenQ.offer(slotsTockendByPlayer[i]);
-                    }
-                    players[playerId].penalty();
+                slotsOfClaim[tokens++] = slot;
+            }
+            // a claim that lost a card (to an earlier claim or a reshuffle) is not the player's fault:
+            if (stale || tokens < SET_SIZE) {
+                continue;
+            }
+            if (env.util.testSet(claimedCards)) {
+                player.point();
+                scheduleFreezeDisplay(player);
+                for (int slot : slotsOfClaim) {
+                    claimedSlots[slot] = true;
+                    slotsToRemove[slotsToRemoveCount++] = slot;
                 }
-                synchronized (players[playerId].playerKey) {
-                    players[playerId].playerKey.notifyAll(); // Waking the player from the wait
+            } else {
+                player.penalty();
+                scheduleFreezeDisplay(player);
+            }
+        }
+        if (slotsToRemoveCount > 0) {
+            // restarting the timers:
+            updateTimerDisplay(true);
+            // removing the cards and ui tokens:
+            synchronized (table) {
+                for (int i = 0; i < slotsToRemoveCount; i++) {
+                    int slot = slotsToRemove[i];
+                    gameCards.remove(table.slotToCard[slot]);
+                    table.removeCard(slot);
+                    // removing the slot from the players token list:
+                    for (Player player : players) {
+                        player.slotTokenQ.remove(slot);
+                    }
                 }
             }
         }
+        for (int playerId : claimants) {
+            players[playerId].dealerDecided();
+            claimVerifyLatency.record(players[playerId].claimDecidedNanos - drainedNanos);
+        }
+    }
+
+    /**
+     * Called by a player that plays again after its claim was decided.
+     *
+     * @param player - the player.
+     */
+    void claimResumed(Player player) {
+        long now = System.nanoTime();
+        claimWakeUpLatency.record(now - player.claimDecidedNanos);
+        claimTotalLatency.record(now - player.claimSubmittedNanos);
+    }
+
+    /**
+     * Called by a player once it placed or removed a token.
+     *
+     * @param player - the player.
+     * @param slot   - the slot of the token.
+     */
+    void tokenChanged(Player player, int slot) {
+        tokenLatency.record(System.nanoTime() - player.pressedNanos[slot]);
+    }
+
+    /**
+     * Returns the percentiles of the claim latencies so far (also logged at the
+     * end of the game).
+     *
+     * @return - a line per stage of the claims.
+     */
+    public String claimLatencies() {
+        return "claim latencies:\n" + claimQueueLatency + "\n" + claimVerifyLatency + "\n" + claimWakeUpLatency
+                + "\n" + claimTotalLatency;
+    }
+
+    /**
+     * Removes a player's token that is out of date (from the player's tokens and from the ui).
+     */
+    private void dropToken(Player player, int slot) {
+        if (player.slotTokenQ.remove(slot)) {
+            table.removeToken(player.id, slot);
+        }
+    }
+
+    /**
+     * Called by a player that placed SET_SIZE tokens, to have the dealer check them.
+     *
+     * @param playerId - the id of the player.
+     */
+    public void submitClaim(int playerId) {
+        if (!setsCheck.offer(playerId)) {
+            // cannot happen (see setsCheck), but a lost claim must not leave its player waiting:
+            env.logger.severe("the claims queue is full, dropping the claim of player " + playerId);
+            players[playerId].dealerDecided();
+            return;
+        }
+        LockSupport.unpark(dealerThread);
     }
 
     /**
@@ -220,22 +384,26 @@ public class Dealer implements Runnable {
     protected void placeCardsOnTable() {
         synchronized (table) {
             if (deck.size() != 0 & table.countCards() != env.config.tableSize) {
-                List<Integer> openSlots = new ArrayList<Integer>();
+                int[] openSlots = new int[env.config.tableSize];
+                int openSlotsCount = 0;
                 for (int i = 0; i < env.config.tableSize; i++) {
                     if (table.slotToCard[i] == null) {
-                        openSlots.add(i);
+                        openSlots[openSlotsCount++] = i;
                     }
                 }
-                Collections.shuffle(openSlots);
-                Collections.shuffle(deck);
-                // matching cards to open slots:
-                while (!deck.isEmpty() & !openSlots.isEmpty()) {
-                    int slotChoosen = openSlots.remove(0);
-                    int cardChoosen = deck.remove(0);
-                    // update the table
-                    table.placeCard(cardChoosen, slotChoosen);
-                    // ui update
-                    env.ui.placeCard(cardChoosen, slotChoosen);
+                shuffle(openSlots, openSlotsCount);
+                // matching random cards to open slots:
+                int[] dealt = new int[Math.min(openSlotsCount, deck.size())];
+                for (int i = 0; i < dealt.length; i++) {
+                    dealt[i] = deck.draw();
+                }
+                // without a countdown, a table with no set would never be reshuffled:
+                if (env.config.turnTimeoutMillis <= 0) {
+                    ensureSetDealt(dealt);
+                }
+                for (int i = 0; i < dealt.length; i++) {
+                    // update the table (and the ui)
+                    table.placeCard(dealt[i], openSlots[i]);
                 }
                 if (env.config.hints) {
                     table.hints();
@@ -247,36 +415,134 @@ public class Dealer implements Runnable {
     }
 
     /**
-     * Sleep for a fixed amount of time or until the thread is awakened for some
-     * purpose.
+     * Makes sure the table will have a legal set once the given cards are dealt,
+     * if replacing one of them with a card of the deck can do it: the replacement
+     * is a card that completes a set with the other cards (found by set
+     * completion, see Util.countSetsWith). If no such card exists, the cards are
+     * dealt as they are (and the dealer reshuffles the table).
+     *
+     * @param dealt - the cards drawn for the open slots (may be changed).
+     */
+    private void ensureSetDealt(int[] dealt) {
+        int[] cards = new int[env.config.tableSize];
+        int onTable = table.cardsOnTable(cards);
+        int length = onTable + dealt.length;
+        System.arraycopy(dealt, 0, cards, onTable, dealt.length);
+        if (dealt.length == 0 || env.util.countSets(cards, length, null) > 0) {
+            return;
+        }
+        for (int i = dealt.length - 1; i >= 0; i--) {
+            // moving dealt[i] to the end, so the other cards are the first length - 1:
+            cards[onTable + i] = cards[length - 1];
+            cards[length - 1] = dealt[i];
+            int replacement = deck.drawMatching(card -> env.util.countSetsWith(card, cards, length - 1) > 0);
+            if (replacement != DrawPile.NO_CARD) {
+                deck.add(dealt[i]);
+                dealt[i] = replacement;
+                return;
+            }
+            cards[length - 1] = cards[onTable + i];
+            cards[onTable + i] = dealt[i];
+        }
+    }
+
+    /**
+     * Sleep until a player submits a claim or until the next deadline that changes
+     * what the dealer has to show.
+     *
+     * @return - true iff there are claims waiting to be checked.
      */
-    private void sleepUntilWokenOrTimeout() {
-        synchronized (setsCheck) {
+    private boolean sleepUntilWokenOrTimeout() {
+        long wakeTime = nextWakeTime(env.clock.millis());
+        // parking in a loop, so spurious wake-ups do not cause a redraw:
+        while (setsCheck.isEmpty() && !terminate && env.clock.millis() < wakeTime) {
             try {
-                setsCheck.wait(dealerTickingTime);
+                env.clock.parkUntil(wakeTime);
             } catch (InterruptedException e) {
             }
         }
+        return !setsCheck.isEmpty();
+    }
+
+    /**
+     * Computes the next time the display changes: a second of the countdown (or of
+     * the elapsed timer) or of a player's freeze ticks over, a freeze ends, the
+     * warning starts or the countdown times out. In warning mode the countdown
+     * changes every tick.
+     *
+     * @param now - the current time.
+     * @return - the time at which the dealer should wake up.
+     */
+    private long nextWakeTime(long now) {
+        long wakeTime = reshuffleTime;
+        if (env.config.turnTimeoutMillis == 0) {
+            wakeTime = now + 1000 - (now - lastActionTime) % 1000;
+        } else if (warn) {
+            wakeTime = Math.min(wakeTime, now + WARN_TICK_MILLIS);
+        } else if (env.config.turnTimeoutMillis > 0) {
+            wakeTime = Math.min(wakeTime, nextSecond(now, reshuffleTime));
+            wakeTime = Math.min(wakeTime, reshuffleTime - env.config.turnTimeoutWarningMillis);
+        }
+        wakeTime = Math.min(wakeTime, freezeTimers.nextDue());
+        return Math.max(wakeTime, now + 1);
+    }
+
+    /**
+     * Returns the next time at which the whole seconds left until the end time
+     * change (the end time itself when less than a second is left).
+     */
+    private static long nextSecond(long now, long endTime) {
+        long left = (endTime - now) % 1000;
+        return now + (left == 0 ? 1000 : left);
     }
 
     /**
      * Reset and/or update the countdown and the countdown display.
+     * With config.turnTimeoutMillis == 0 the timer shows the time since the last
+     * action instead, and with config.turnTimeoutMillis < 0 it shows nothing (in
+     * both modes the table is never reshuffled due to a timeout).
      */
     private void updateTimerDisplay(boolean reset) {
+        if (reset) {
+            lastActionTime = env.clock.millis();
+            reshuffleTime = env.config.turnTimeoutMillis > 0
+                    ? lastActionTime + env.config.turnTimeoutMillis + 1000
+                    : Long.MAX_VALUE;
+            warn = false;
+        }
         // showing the timer:
-        if (reshuffleTime - System.currentTimeMillis() < env.config.turnTimeoutWarningMillis) {
-            dealerTickingTime = 10;
-            warn = true;
+        if (env.config.turnTimeoutMillis > 0) {
+            if (reshuffleTime - env.clock.millis() < env.config.turnTimeoutWarningMillis) {
+                warn = true;
+            }
+            env.ui.setCountdown(reshuffleTime - env.clock.millis(), warn);
+        } else if (env.config.turnTimeoutMillis == 0) {
+            env.ui.setElapsed(env.clock.millis() - lastActionTime);
         }
-        env.ui.setCountdown(reshuffleTime - System.currentTimeMillis(), warn);
-        // showing the freeze time left for the players(show nothing if there is non)
-        for (Player player : players) {
-            if (player.freezeEndTime - System.currentTimeMillis() > 0) {
-                env.ui.setFreeze(player.id, player.freezeEndTime - System.currentTimeMillis());
+        // showing the freeze time left for the players whose display is due (and clearing it once the freeze ends):
+        long now = env.clock.millis();
+        for (int id = freezeTimers.pollDue(now); id != FreezeTimers.NONE; id = freezeTimers.pollDue(now)) {
+            Player player = players[id];
+            if (player.freezeEndTime > now) {
+                env.ui.setFreeze(id, player.freezeEndTime - now);
+                freezeTimers.schedule(id, nextSecond(now, player.freezeEndTime));
+            } else {
+                env.ui.setFreeze(id, 0);
             }
         }
     }
 
+    /**
+     * Schedules the next change of the freeze display of a player that was just given a point or a penalty (which
+     * show the whole freeze).
+     */
+    private void scheduleFreezeDisplay(Player player) {
+        long now = env.clock.millis();
+        if (player.freezeEndTime > now) {
+            freezeTimers.schedule(player.id, nextSecond(now, player.freezeEndTime));
+        }
+    }
+
     /**
      * Returns all the cards from the table to the deck.
      * 
@@ -284,34 +550,42 @@ public class Dealer implements Runnable {
      */
     protected void removeAllCardsFromTable() {
         allowPlaying = false;
-        ArrayList<Integer> slotsToRemove = new ArrayList<Integer>();
+        int[] slotsToRemove = new int[env.config.tableSize];
         for (int i = 0; i < env.config.tableSize; i++) {
-            slotsToRemove.add(i);
+            slotsToRemove[i] = i;
         }
-        Collections.shuffle(slotsToRemove);
-        synchronized (setsCheck) {
-            synchronized (table) {
-                for (int slot : slotsToRemove) {
-                    // if there is a card in the slot then return it to the deck:
-                    if (table.slotToCard[slot] != null) {
-                        deck.add(table.slotToCard[slot]);
-                    }
-                    // remove the card from the choosen slot:
-                    table.removeCard(slot);
-                    Collections.shuffle(deck);
-                }
-                // clear the players lists and tokens:
-                for (Player player : players) {
-                    player.slotTokenQ.clear();
-                    synchronized (player.playerKey) {
-                        player.playerKey.notifyAll();
-                    }
-                }
-                setsCheck.clear();
+        shuffle(slotsToRemove, slotsToRemove.length);
+        int[] cardsToReturn = new int[env.config.tableSize];
+        synchronized (table) {
+            // returning the cards to the deck (draws are random, so there is no need to shuffle it):
+            deck.addAll(cardsToReturn, table.cardsOnTable(cardsToReturn));
+            for (int slot : slotsToRemove) {
+                // remove the card from the choosen slot:
+                table.removeCard(slot);
+            }
+            // dropping the pending claims before releasing their players; an id queued meanwhile stays in the
+            // queue, and is skipped next round since its player is no longer waiting (see removeCardsFromTable):
+            setsCheck.clear();
+            // clear the players lists and tokens:
+            for (Player player : players) {
+                player.slotTokenQ.clear();
+                player.dealerDecided();
             }
         }
     }
 
+    /**
+     * Shuffles the first length elements of an array (Fisher-Yates).
+     */
+    private void shuffle(int[] array, int length) {
+        for (int i = length - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int swapped = array[i];
+            array[i] = array[j];
+            array[j] = swapped;
+        }
+    }
+
     /**
      * Check who is/are the winner/s and displays them.
      */
@@ -342,13 +616,7 @@ public class Dealer implements Runnable {
      * the deck is empty.
      */
     protected boolean anySetsOnBoard() {
-        List<Integer> cardsOnBoard = new LinkedList<>();
-        for (int i = 0; i < env.config.tableSize; i++) {
-            if (table.slotToCard[i] != null) {
-                cardsOnBoard.add(table.slotToCard[i]);
-            }
-        }
-        if (env.util.findSets(cardsOnBoard, 1).size() == 0) {
+        if (table.setsOnTable() == 0) {
             if (deck.isEmpty()) {
                 terminate();
             }
@@ -0,0 +1,122 @@
+package bguspl.set.ex;
+
+import java.util.NoSuchElementException;
+import java.util.SplittableRandom;
+import java.util.function.IntPredicate;
+
+/**
+ * The dealer's draw pile. The cards are kept in an array with a live size and drawn at random in O(1), as an
+ * incremental Fisher-Yates shuffle (each draw swaps a random card to the end of the pile), so the pile never needs to
+ * be shuffled as a whole.
+ *
+ * @inv 0 <= size() <= capacity
+ */
+public class DrawPile {
+
+    /**
+     * Returned by drawMatching when no card in the pile matches.
+     */
+    public static final int NO_CARD = -1;
+
+    /**
+     * The cards in the pile are cards[0] to cards[size - 1] (in no particular order).
+     */
+    private final int[] cards;
+
+    /**
+     * The number of cards in the pile.
+     */
+    private int size;
+
+    /**
+     * The random source of the draws.
+     */
+    private final SplittableRandom random;
+
+    /**
+     * Creates a pile of the whole deck.
+     *
+     * @param deckSize - the number of cards in the deck (the cards 0 to deckSize - 1).
+     * @param random   - the random source of the draws.
+     */
+    public DrawPile(int deckSize, SplittableRandom random) {
+        this.cards = new int[deckSize];
+        this.random = random;
+        for (int card = 0; card < deckSize; ++card)
+            cards[card] = card;
+        this.size = deckSize;
+    }
+
+    /**
+     * @return - the number of cards in the pile.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return - true iff there are no cards in the pile.
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Draws a random card from the pile.
+     *
+     * @return - the card drawn.
+     * @throws NoSuchElementException - if the pile is empty.
+     * @post - size() == @pre size() - 1
+     */
+    public int draw() {
+        if (size == 0)
+            throw new NoSuchElementException("the draw pile is empty");
+        int i = random.nextInt(size--);
+        int card = cards[i];
+        cards[i] = cards[size];
+        cards[size] = card;
+        return card;
+    }
+
+    /**
+     * Draws a card that matches the given condition, checking the cards from a random position in the pile.
+     *
+     * @param condition - the condition on the card.
+     * @return - the card drawn, or NO_CARD if no card in the pile matches (then the pile is not changed).
+     */
+    public int drawMatching(IntPredicate condition) {
+        int start = size == 0 ? 0 : random.nextInt(size);
+        for (int j = 0; j < size; ++j) {
+            int i = start + j < size ? start + j : start + j - size;
+            int card = cards[i];
+            if (condition.test(card)) {
+                cards[i] = cards[--size];
+                cards[size] = card;
+                return card;
+            }
+        }
+        return NO_CARD;
+    }
+
+    /**
+     * Returns a card to the pile.
+     *
+     * @param card - a card id that is not in the pile.
+     * @post - size() == @pre size() + 1
+     */
+    public void add(int card) {
+        cards[size++] = card;
+    }
+
+    /**
+     * Returns cards to the pile (e.g. the cards of the table on a reshuffle).
+     *
+     * @param cards  - an array of card ids that are not in the pile.
+     * @param length - the number of cards to return.
+     * @post - size() == @pre size() + length
+     */
+    public void addAll(int[] cards, int length) {
+        System.arraycopy(cards, 0, this.cards, size, length);
+        size += length;
+    }
+}
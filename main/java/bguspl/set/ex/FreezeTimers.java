@@ -0,0 +1,111 @@
+package bguspl.set.ex;
+
+import java.util.Arrays;
+
+/**
+ * A min-heap of the times at which the dealer has to update the freeze display of the players (when a shown second
+ * of a freeze changes or the freeze ends), so the dealer only visits the players whose display is due.
+ * Each player is in the heap at most once, and the heap never allocates after construction.
+ */
+class FreezeTimers {
+
+    /**
+     * Returned by pollDue when no player is due.
+     */
+    static final int NONE = -1;
+
+    /**
+     * The time each player is due at (valid while the player is in the heap).
+     */
+    private final long[] due;
+
+    /**
+     * The heap of player ids (heap[0] is due first), and the position of each player in it (NONE if not in it).
+     */
+    private final int[] heap;
+    private final int[] position;
+    private int size;
+
+    /**
+     * @param players - the number of players.
+     */
+    FreezeTimers(int players) {
+        due = new long[players];
+        heap = new int[players];
+        position = new int[players];
+        Arrays.fill(position, NONE);
+    }
+
+    /**
+     * Schedules (or reschedules) a player.
+     *
+     * @param player - the player id.
+     * @param time   - the time the player is due at.
+     */
+    void schedule(int player, long time) {
+        if (position[player] == NONE) {
+            position[player] = size;
+            heap[size++] = player;
+        }
+        due[player] = time;
+        siftUp(position[player]);
+        siftDown(position[player]);
+    }
+
+    /**
+     * @return - the time the first player is due at (Long.MAX_VALUE if none is scheduled).
+     */
+    long nextDue() {
+        return size == 0 ? Long.MAX_VALUE : due[heap[0]];
+    }
+
+    /**
+     * Removes the first player if it is due.
+     *
+     * @param now - the current time.
+     * @return - the id of the player removed, or NONE if no player is due.
+     */
+    int pollDue(long now) {
+        if (size == 0 || due[heap[0]] > now)
+            return NONE;
+        int player = heap[0];
+        position[player] = NONE;
+        if (--size > 0) {
+            heap[0] = heap[size];
+            position[heap[0]] = 0;
+            siftDown(0);
+        }
+        return player;
+    }
+
+    private void siftUp(int i) {
+        while (i > 0) {
+            int parent = (i - 1) / 2;
+            if (due[heap[parent]] <= due[heap[i]])
+                return;
+            swap(i, parent);
+            i = parent;
+        }
+    }
+
+    private void siftDown(int i) {
+        while (true) {
+            int smallest = i;
+            for (int child = 2 * i + 1; child <= 2 * i + 2 && child < size; ++child)
+                if (due[heap[child]] < due[heap[smallest]])
+                    smallest = child;
+            if (smallest == i)
+                return;
+            swap(i, smallest);
+            i = smallest;
+        }
+    }
+
+    private void swap(int i, int j) {
+        int player = heap[i];
+        heap[i] = heap[j];
+        heap[j] = player;
+        position[heap[i]] = i;
+        position[heap[j]] = j;
+    }
+}
@@ -7,8 +7,10 @@ import bguspl.set.Env;
 
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Random;
+import java.util.SplittableRandom;
 import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.locks.LockSupport;
 
 /**
  * This class manages the players' threads and data
@@ -36,13 +38,13 @@ public class Player implements Runnable {
     /**
      * The thread representing the current player.
      */
-    public Thread playerThread;
+    public volatile Thread playerThread;
 
     /**
      * The thread of the AI (computer) player (an additional thread used to generate
      * key presses).
      */
-    private Thread aiThread;
+    private volatile Thread aiThread;
 
     /**
      * True iff the player is human (not a computer player).
@@ -70,14 +72,19 @@ public class Player implements Runnable {
     public LinkedBlockingQueue<Integer> slotTokenQ;
 
     /**
-     * the game dealer.
+     * The version of each slot (see Table.slotVersion) at the time the player placed a token on it.
      */
-    private Dealer dealer;
+    public final AtomicIntegerArray tokenVersions;
+
+    /**
+     * The random source of the AI (split from the dealer's, see Dealer.run).
+     */
+    SplittableRandom random;
 
     /**
-     * the player key.
+     * the game dealer.
      */
-    public Object playerKey;
+    private Dealer dealer;
 
     /**
      * player end of freeze time due to point or penalty.
@@ -87,7 +94,20 @@ public class Player implements Runnable {
     /**
      * true iff waiting for the dealer decision
      */
-    public boolean waitForDealerDecision;
+    public volatile boolean waitForDealerDecision;
+
+    /**
+     * The time (of System.nanoTime) the player submitted its last claim, and the
+     * time the dealer decided it (for the claim latency histograms of the dealer).
+     */
+    volatile long claimSubmittedNanos;
+    volatile long claimDecidedNanos;
+
+    /**
+     * The time (of System.nanoTime) each slot was last pressed (for the token latency histogram of the dealer). Written
+     * before the press is queued, so the player thread reads it after taking the press.
+     */
+    final long[] pressedNanos;
 
     /**
      * The class constructor.
@@ -109,9 +129,11 @@ public class Player implements Runnable {
         this.terminate = false;
         this.slotPressedQ = new LinkedBlockingQueue<>(Dealer.SET_SIZE);
         this.slotTokenQ = new LinkedBlockingQueue<Integer>(Dealer.SET_SIZE);
-        playerKey = new Object();
+        this.tokenVersions = new AtomicIntegerArray(env.config.tableSize);
+        this.pressedNanos = new long[env.config.tableSize];
         freezeEndTime = 0;
         waitForDealerDecision = false;
+        random = new SplittableRandom(env.config.randomSeed);
     }
 
     /**
@@ -126,50 +148,54 @@ public class Player implements Runnable {
             createArtificialIntelligence();
 
         while (!terminate) {
-            if (!slotPressedQ.isEmpty()) {
-                int slotPrress;
-                synchronized (slotPressedQ) {
-                    slotPrress = slotPressedQ.poll();
-                    slotPressedQ.notifyAll();
-                }
-                if (slotTokenQ.contains(slotPrress)) {
-                    table.removeToken(id, slotPrress);
-                    slotTokenQ.remove(slotPrress);
-                } else {
-                    synchronized (dealer.setsCheck) {
-                        synchronized (table) {
-                            if ((table.slotToCard[slotPrress] != null) && (slotTokenQ.offer(slotPrress))) {
-                                table.placeToken(id, slotPrress);
-                                if (slotTokenQ.size() == Dealer.SET_SIZE) {
-                                    dealer.setsCheck.offer(id);
-                                    dealer.setsCheck.notifyAll();
-                                    waitForDealerDecision = true;
-                                }
-                            }
+            boolean claimed = false;
+            int slotPrress;
+            // sleeping until a key is pressed (terminate interrupts the wait):
+            try {
+                slotPrress = slotPressedQ.take();
+            } catch (InterruptedException e) {
+                continue;
+            }
+            if (slotTokenQ.contains(slotPrress)) {
+                table.removeToken(id, slotPrress);
+                slotTokenQ.remove(slotPrress);
+                dealer.tokenChanged(this, slotPrress);
+            } else {
+                // no lock is taken: the version is read before the card, so if the card is changed
+                // meanwhile, the dealer finds the token out of date when checking the set
+                int version = table.slotVersion(slotPrress);
+                if (table.slotToCard[slotPrress] != null) {
+                    tokenVersions.set(slotPrress, version);
+                    if (slotTokenQ.offer(slotPrress)) {
+                        table.placeToken(id, slotPrress);
+                        dealer.tokenChanged(this, slotPrress);
+                        if (slotTokenQ.size() == Dealer.SET_SIZE) {
+                            // set before queueing the claim: the dealer only judges the players that wait
+                            waitForDealerDecision = true;
+                            claimed = true;
+                            claimSubmittedNanos = System.nanoTime();
+                            dealer.submitClaim(id);
                         }
                     }
                 }
             }
-            if (waitForDealerDecision) {
-                synchronized (playerKey) {
-                    try {
-                        playerKey.wait();
-                    } catch (InterruptedException e) {
-                    }
-                    waitForDealerDecision = false;
-                }
+            wakeAi(); // the press is handled (a smart ai waits for it)
+            // parking (not waiting on a monitor), so a virtual player thread does not pin its carrier thread:
+            while (waitForDealerDecision && !terminate) {
+                LockSupport.park(this);
+            }
+            if (claimed && !terminate) {
+                dealer.claimResumed(this);
             }
         }
 
-        if (!human)
-            try
-
-            {
+        // joining even if interrupted by terminate, so the ai thread always ends first:
+        while (!human && aiThread.isAlive()) {
+            try {
                 aiThread.join();
-            } catch (
-
-            InterruptedException ignored) {
+            } catch (InterruptedException ignored) {
             }
+        }
         env.logger.log(Level.INFO, "Thread " + Thread.currentThread().getName() + " terminated.");
     }
 
@@ -180,24 +206,141 @@ public class Player implements Runnable {
      * until it is not full.
      */
     private void createArtificialIntelligence() {
-        // note: this is a very very smart AI (!)
-        aiThread = new Thread(() -> {
+        aiThread = env.threads.newThread(() -> {
             env.logger.log(Level.INFO, "Thread " + Thread.currentThread().getName() + " starting.");
-            while (!terminate) {
-                int randomSlot = (int) (Math.random() * env.config.tableSize);
+            if (env.config.smartComputerPlayers) {
+                claimSets();
+            } else {
+                pressRandomKeys();
+            }
+            env.logger.log(Level.INFO, "Thread " + Thread.currentThread().getName() + " terminated.");
+        });
+        aiThread.setName("computer-" + id);
+        aiThread.start();
+    }
 
-                keyPressed(randomSlot);
+    /**
+     * The main loop of a random AI: presses a random key every millisecond.
+     */
+    private void pressRandomKeys() {
+        // note: this is a very very smart AI (!)
+        while (!terminate) {
+            int randomSlot = random.nextInt(env.config.tableSize);
 
-                try {
-                    synchronized (this) {
-                        wait(1);
-                    }
-                } catch (InterruptedException ignored) {
+            keyPressed(randomSlot);
+
+            try {
+                env.clock.sleep(1);
+            } catch (InterruptedException ignored) {
+            }
+        }
+    }
+
+    /**
+     * The main loop of a smart AI (config.smartComputerPlayers): looks for the sets on a snapshot of the table,
+     * waits its reaction time and claims one of them (or, at config.computerErrorRate, a wrong claim). The AI does
+     * not press anything while the player is frozen or its claim is waiting for the dealer: it parks until the freeze
+     * ends or until it is woken (see wakeAi) when its presses were handled, its claim was decided, or playing is
+     * allowed again.
+     */
+    private void claimSets() {
+        int[] cards = new int[env.config.tableSize];
+        int[] sets = new int[env.config.tableSize * env.config.featureSize];
+        int[] claim = new int[Dealer.SET_SIZE];
+        int[] slots = new int[Dealer.SET_SIZE];
+        while (!terminate) {
+            try {
+                if (waitForDealerDecision || !slotPressedQ.isEmpty() || !dealer.allowPlaying) {
+                    LockSupport.park(this);
+                    continue;
+                }
+                if (env.clock.millis() < freezeEndTime) {
+                    env.clock.parkUntil(freezeEndTime);
+                    continue;
                 }
+                int length = table.cardsOnTable(cards);
+                int found = env.util.findSets(cards, length, sets);
+                env.clock.sleep(reactionTime());
+                if (found == 0)
+                    continue;
+                int set = random.nextInt(found) * env.config.featureSize;
+                for (int i = 0; i < claim.length; i++)
+                    claim[i] = sets[set + i];
+                if (random.nextDouble() < env.config.computerErrorRate)
+                    claimWrongCard(claim, cards, length);
+                pressClaim(claim, slots);
+            } catch (InterruptedException ignored) {
             }
-            env.logger.log(Level.INFO, "Thread " + Thread.currentThread().getName() + " terminated.");
-        }, "computer-" + id);
-        aiThread.start();
+        }
+    }
+
+    /**
+     * Returns a reaction time of the smart AI, exponentially distributed with a mean of config.computerReactionMillis.
+     */
+    private long reactionTime() {
+        return (long) (-env.config.computerReactionMillis * Math.log(1 - random.nextDouble()));
+    }
+
+    /**
+     * Replaces a random card of a set with another card of the table (so the claim is not a legal set, as the other
+     * cards of a set determine the last one).
+     */
+    private void claimWrongCard(int[] claim, int[] cards, int length) {
+        if (length <= claim.length)
+            return;
+        int card;
+        do {
+            card = cards[random.nextInt(length)];
+        } while (contains(claim, card));
+        claim[random.nextInt(claim.length)] = card;
+    }
+
+    /**
+     * Presses the keys of the claimed cards that are still in their slots: first takes back the tokens that are not
+     * part of the claim (e.g. left from a penalty), then places the missing ones.
+     */
+    private void pressClaim(int[] claim, int[] slots) throws InterruptedException {
+        for (int i = 0; i < claim.length; i++) {
+            Integer slot = table.cardToSlot[claim[i]];
+            if (slot == null)
+                return; // the card was taken meanwhile
+            slots[i] = slot;
+        }
+        for (int slot : slotTokenQ)
+            if (!contains(slots, slot))
+                pressKey(slot);
+        for (int slot : slots)
+            if (!slotTokenQ.contains(slot))
+                pressKey(slot);
+    }
+
+    private static boolean contains(int[] values, int value) {
+        for (int v : values)
+            if (v == value)
+                return true;
+        return false;
+    }
+
+    /**
+     * Presses a key, waiting until the queue of key presses is not full.
+     */
+    private void pressKey(int slot) throws InterruptedException {
+        while (slotPressedQ.remainingCapacity() == 0 && !terminate) {
+            LockSupport.park(this);
+            if (Thread.interrupted())
+                throw new InterruptedException();
+        }
+        keyPressed(slot);
+    }
+
+    /**
+     * Wakes the AI thread if it is parked waiting for the player or the dealer (see claimSets). The callers change
+     * what the AI waits for before waking it, so a wake up is never missed.
+     */
+    void wakeAi() {
+        Thread ai = aiThread;
+        if (ai != null)
+            LockSupport.unpark(ai);
     }
 
     /**
@@ -205,9 +348,14 @@ public class Player implements Runnable {
      */
     public void terminate() {
         terminate = true;
-        if (!human) {
+        // the ai thread is created by the player thread, which may not have started yet:
+        if (!human && aiThread != null) {
             aiThread.interrupt();
         }
+        // waking the player thread if it waits for a key press or a dealer decision:
+        if (playerThread != null) {
+            playerThread.interrupt();
+        }
     }
 
     /**
@@ -218,11 +366,9 @@ public class Player implements Runnable {
      * @post: slotPressedQ.size<=@pre slotPressedQ.size + 1
      */
     public void keyPressed(int slot) {
-        if ((System.currentTimeMillis() - freezeEndTime > 0) & (dealer.allowPlaying)) {
-            synchronized (slotPressedQ) {
-                slotPressedQ.offer(slot);
-                slotPressedQ.notifyAll();
-            }
+        if ((env.clock.millis() >= freezeEndTime) & (dealer.allowPlaying)) {
+            pressedNanos[slot] = System.nanoTime();
+            slotPressedQ.offer(slot);
         }
     }
 
@@ -237,8 +383,7 @@ public class Player implements Runnable {
         int ignored = table.countCards(); // this part is just for demonstration in the unit tests
         env.ui.setScore(id, ++score);
         env.ui.setFreeze(id, env.config.pointFreezeMillis);
-        freezeEndTime = System.currentTimeMillis() + env.config.pointFreezeMillis;
-        waitForDealerDecision = false;
+        freezeEndTime = env.clock.millis() + env.config.pointFreezeMillis;
     }
 
     /**
@@ -248,8 +393,19 @@ public class Player implements Runnable {
      */
     public void penalty() {
         env.ui.setFreeze(id, env.config.penaltyFreezeMillis);
-        freezeEndTime = System.currentTimeMillis() + env.config.penaltyFreezeMillis;
-        waitForDealerDecision = false; // should not play while in penalty
+        freezeEndTime = env.clock.millis() + env.config.penaltyFreezeMillis;
+    }
+
+    /**
+     * Called by the dealer once the player's claim was decided (or dropped), to let the player play again.
+     * This is the only place that releases the player, so the decision time is always stamped before the player
+     * can see the flag cleared (and the freeze of a point or penalty is always set by then).
+     */
+    public void dealerDecided() {
+        claimDecidedNanos = System.nanoTime();
+        waitForDealerDecision = false;
+        LockSupport.unpark(playerThread); // Waking the player from the wait
+        wakeAi();
     }
 
     public int score() {
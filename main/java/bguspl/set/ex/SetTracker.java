@@ -0,0 +1,110 @@
+package bguspl.set.ex;
+
+import bguspl.set.Config;
+import bguspl.set.Env;
+
+import java.math.BigInteger;
+
+/**
+ * This class keeps track of the cards that are still in the game (in the deck or on the table) and of the number of
+ * legal sets among them. Moving a card between the deck and the table does not change it, so it is only updated when
+ * a card leaves the game (i.e. when a set is collected).
+ *
+ * @inv sets == the number of legal sets among cards[0 .. size - 1]
+ * @inv cards[position[card]] == card iff the card is still in the game
+ */
+public class SetTracker {
+
+    /**
+     * The game environment object.
+     */
+    private final Env env;
+
+    /**
+     * The cards still in the game (the first size elements).
+     */
+    private final int[] cards;
+
+    /**
+     * Mapping between a card and its index in cards (-1 if it left the game).
+     */
+    private final int[] position;
+
+    /**
+     * The number of cards still in the game.
+     */
+    private int size;
+
+    /**
+     * The number of legal sets among the cards still in the game.
+     */
+    private volatile long sets;
+
+    /**
+     * Starts tracking the whole deck.
+     *
+     * @param env - the game environment objects.
+     */
+    public SetTracker(Env env) {
+        this.env = env;
+        cards = new int[env.config.deckSize];
+        position = new int[env.config.deckSize];
+        for (int card = 0; card < env.config.deckSize; card++) {
+            position[card] = card;
+            cards[card] = card;
+        }
+        size = env.config.deckSize;
+        sets = setsInDeck(env.config);
+    }
+
+    /**
+     * Returns the number of legal sets in the whole deck, in O(1) (a search would take O(deckSize ^ (featureSize - 1))).
+     * In an ordered set, every feature is either the same value in all the cards (featureSize ways) or a permutation of
+     * all the values (featureSize! ways); only the sequences of one card repeated are not sets, and each set has
+     * featureSize! orders. So there are ((r + r!) ^ k - r ^ k) / r! sets of r = featureSize and k = featureCount.
+     *
+     * @param config - the game configuration.
+     * @return - the number of sets in the deck (Long.MAX_VALUE if there are more).
+     */
+    static long setsInDeck(Config config) {
+        BigInteger r = BigInteger.valueOf(config.featureSize);
+        BigInteger orders = BigInteger.ONE;
+        for (int i = 2; i <= config.featureSize; i++)
+            orders = orders.multiply(BigInteger.valueOf(i));
+        BigInteger sets = r.add(orders).pow(config.featureCount).subtract(r.pow(config.featureCount)).divide(orders);
+        return sets.min(BigInteger.valueOf(Long.MAX_VALUE)).longValue();
+    }
+
+    /**
+     * Removes a card from the game and the sets it belonged to, in O(cards in game).
+     *
+     * @param card - the card that left the game.
+     */
+    public void remove(int card) {
+        if (position[card] < 0)
+            return;
+        int last = cards[--size];
+        cards[position[card]] = last;
+        position[last] = position[card];
+        position[card] = -1;
+        sets -= env.util.countSetsWith(card, cards, size);
+    }
+
+    /**
+     * Returns the number of legal sets that can still be collected, in O(1).
+     *
+     * @return - the number of sets among the cards in the deck and on the table.
+     */
+    public long sets() {
+        return sets;
+    }
+
+    /**
+     * Returns the number of cards still in the game.
+     *
+     * @return - the number of cards in the deck and on the table.
+     */
+    public int size() {
+        return size;
+    }
+}
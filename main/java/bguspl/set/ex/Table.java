@@ -5,7 +5,7 @@ import bguspl.set.Env;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
-import java.util.Objects;
+import java.util.concurrent.atomic.AtomicIntegerArray;
 import java.util.stream.Collectors;
 
 /**
@@ -30,6 +30,27 @@ public class Table {
      */
     protected final Integer[] cardToSlot; // slot per card (if any)
 
+    /**
+     * The number of legal sets among the cards currently on the table (kept up to date by placeCard and removeCard).
+     */
+    private volatile int setsOnTable;
+
+    /**
+     * Reusable buffer of the cards on the table (for updating setsOnTable).
+     */
+    private final int[] tableCards;
+
+    /**
+     * The version of each slot, incremented after every change of the card in it (so tokens placed without a lock can
+     * be validated by the dealer).
+     */
+    private final AtomicIntegerArray slotVersions;
+
+    /**
+     * Shows the changes of the table on the ui (with the table delay).
+     */
+    private final TableAnimator animator;
+
     /**
      * Constructor for testing.
      *
@@ -44,6 +65,10 @@ public class Table {
         this.env = env;
         this.slotToCard = slotToCard;
         this.cardToSlot = cardToSlot;
+        this.tableCards = new int[slotToCard.length];
+        this.slotVersions = new AtomicIntegerArray(slotToCard.length);
+        this.animator = new TableAnimator(env);
+        this.setsOnTable = env.util.countSets(tableCards, cardsOnTable(tableCards), null);
     }
 
     /**
@@ -61,8 +86,10 @@ public class Table {
      * table.
      */
     public void hints() {
-        List<Integer> deck = Arrays.stream(slotToCard).filter(Objects::nonNull).collect(Collectors.toList());
-        env.util.findSets(deck, Integer.MAX_VALUE).forEach(set -> {
+        if (setsOnTable == 0)
+            return;
+        int[] cards = new int[env.config.tableSize];
+        env.util.streamSets(cards, cardsOnTable(cards)).forEach(set -> {
             StringBuilder sb = new StringBuilder().append("Hint: Set found: ");
             List<Integer> slots = Arrays.stream(set).mapToObj(card -> cardToSlot[card]).sorted()
                     .collect(Collectors.toList());
@@ -72,6 +99,56 @@ public class Table {
         });
     }
 
+    /**
+     * Copies the cards currently on the table to the given array.
+     *
+     * @param cards - an array of at least config.tableSize elements.
+     * @return - the number of cards copied.
+     */
+    public int cardsOnTable(int[] cards) {
+        int length = 0;
+        for (Integer card : slotToCard)
+            if (card != null)
+                cards[length++] = card;
+        return length;
+    }
+
+    /**
+     * Returns the number of legal sets among the cards currently on the table, in O(1).
+     *
+     * @return - the number of sets on the table.
+     */
+    public int setsOnTable() {
+        return setsOnTable;
+    }
+
+    /**
+     * Counts the legal sets on the table that each card belongs to (e.g. for board statistics).
+     *
+     * @return - the number of sets that the card in each slot belongs to (0 for empty slots).
+     */
+    public int[] setsPerSlot() {
+        int[] cards = new int[env.config.tableSize];
+        int[] setsPerCard = new int[env.config.tableSize];
+        int length = cardsOnTable(cards);
+        env.util.countSets(cards, length, setsPerCard);
+        int[] setsPerSlot = new int[env.config.tableSize];
+        for (int i = 0; i < length; ++i)
+            setsPerSlot[cardToSlot[cards[i]]] = setsPerCard[i];
+        return setsPerSlot;
+    }
+
+    /**
+     * Returns the version of a slot. A card read from the slot after reading its version is the card of that version,
+     * unless the version has changed since.
+     *
+     * @param slot - the slot.
+     * @return - the number of times the card in the slot was changed.
+     */
+    public int slotVersion(int slot) {
+        return slotVersions.get(slot);
+    }
+
     /**
      * Count the number of cards currently on the table.
      *
@@ -87,6 +164,7 @@ public class Table {
 
     /**
      * Places a card on the table in a grid slot.
+     * The card is shown on the ui after the table delay, without delaying the caller.
      * 
      * @param card - the card id to place in the slot.
      * @param slot - the slot in which the card should be placed.
@@ -94,32 +172,34 @@ public class Table {
      * @post - the card placed is on the table, in the assigned slot.
      */
     public void placeCard(int card, int slot) {
-        try {
-            Thread.sleep(env.config.tableDelayMillis);
-        } catch (InterruptedException ignored) {
-        }
+        animator.show(() -> env.ui.placeCard(card, slot), true);
 
+        // only the sets that include the new card are added
+        setsOnTable += env.util.countSetsWith(card, tableCards, cardsOnTable(tableCards));
         cardToSlot[card] = slot;
         slotToCard[slot] = card;
+        slotVersions.incrementAndGet(slot);
     }
 
     /**
      * Removes a card from a grid slot on the table.
+     * The card (and the tokens on it) are removed from the ui after the table delay, without delaying the caller.
      * 
      * @param slot - the slot from which to remove the card.
      */
     public void removeCard(int slot) {
-        try {
-            Thread.sleep(env.config.tableDelayMillis);
-        } catch (InterruptedException ignored) {
-        }
-        env.ui.removeCard(slot);
+        animator.show(() -> {
+            env.ui.removeCard(slot);
+            env.ui.removeTokens(slot);
+        }, true);
         if (slotToCard[slot] != null) {
             int cardToRemove = slotToCard[slot];
             cardToSlot[cardToRemove] = null;
+            slotToCard[slot] = null;
+            slotVersions.incrementAndGet(slot);
+            // only the sets that included the removed card are gone
+            setsOnTable -= env.util.countSetsWith(cardToRemove, tableCards, cardsOnTable(tableCards));
         }
-        slotToCard[slot] = null;
-        env.ui.removeTokens(slot);
     }
 
     /**
@@ -129,7 +209,8 @@ public class Table {
      * @param slot   - the slot on which to place the token.
      */
     public void placeToken(int player, int slot) {
-        env.ui.placeToken(player, slot);
+        // queued after the pending card transitions, so the token is shown on the right card
+        animator.show(() -> env.ui.placeToken(player, slot), false);
     }
 
     /**
@@ -139,7 +220,15 @@ public class Table {
      * @param slot   - the slot from which to remove the token.
      */
     public void removeToken(int player, int slot) {
-        env.ui.removeToken(player, slot);
+        animator.show(() -> env.ui.removeToken(player, slot), false);
+    }
+
+    /**
+     * Waits until all the changes of the table are shown on the ui (e.g. before announcing the winners), and stops
+     * the animator thread (it is started again by the next change).
+     */
+    public void finishAnimations() {
+        animator.finish();
     }
 
     /**
@@ -0,0 +1,120 @@
+package bguspl.set.ex;
+
+import bguspl.set.Env;
+
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * Shows the changes of the table on the user interface, in the order they were made, waiting
+ * config.tableDelayMillis before each card transition. The table model is updated at once and only the animation
+ * is delayed, so neither the dealer nor the players wait for it.
+ */
+class TableAnimator implements Runnable {
+
+    /**
+     * The game environment object.
+     */
+    private final Env env;
+
+    /**
+     * The ui updates waiting to be shown.
+     */
+    private final LinkedBlockingQueue<Runnable> updates;
+
+    /**
+     * The number of ui updates queued and not shown yet.
+     */
+    private int pending;
+
+    /**
+     * The thread showing the updates (null if not started).
+     */
+    private Thread animatorThread;
+
+    TableAnimator(Env env) {
+        this.env = env;
+        this.updates = new LinkedBlockingQueue<>();
+    }
+
+    /**
+     * Queues a ui update. Without a table delay the update is shown immediately by the calling thread.
+     *
+     * @param update  - the ui update.
+     * @param delayed - true iff the update is a card transition (shown after the table delay).
+     */
+    void show(Runnable update, boolean delayed) {
+        if (env.config.tableDelayMillis <= 0) {
+            update.run();
+            return;
+        }
+        synchronized (this) {
+            ++pending;
+            if (animatorThread == null) {
+                // created like the other threads of the game (a virtual thread if config.virtualThreads):
+                animatorThread = env.threads.newThread(this);
+                animatorThread.setName("table-animator");
+                animatorThread.setDaemon(true);
+                animatorThread.start();
+            }
+            // queued under the lock, so finish cannot drop the update after it was counted:
+            updates.offer(delayed ? () -> {
+                try {
+                    env.clock.sleep(env.config.tableDelayMillis);
+                } catch (InterruptedException ignored) {
+                    Thread.currentThread().interrupt();
+                }
+                update.run();
+            } : update);
+        }
+    }
+
+    /**
+     * Waits until all the queued updates were shown, and stops the animator thread (it is started again by the next
+     * update). If the calling thread is interrupted while waiting, the updates not shown yet are dropped.
+     */
+    synchronized void finish() {
+        boolean interrupted = false;
+        try {
+            while (pending > 0)
+                wait();
+        } catch (InterruptedException ex) {
+            interrupted = true;
+        }
+        if (animatorThread != null) {
+            animatorThread.interrupt();
+            try {
+                // once all the updates were shown the thread is idle, so it ends without taking this lock:
+                if (pending == 0)
+                    animatorThread.join();
+            } catch (InterruptedException ex) {
+                interrupted = true;
+            }
+            animatorThread = null;
+        }
+        // abandoning the updates of the stopped thread, so the next finish does not wait for them:
+        updates.clear();
+        pending = 0;
+        if (interrupted)
+            Thread.currentThread().interrupt();
+    }
+
+    /**
+     * The animator thread shows the queued updates one by one.
+     */
+    @Override
+    public void run() {
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                updates.take().run();
+                synchronized (this) {
+                    // a thread abandoned by finish does not count the updates of the next one:
+                    if (animatorThread != Thread.currentThread())
+                        return;
+                    if (--pending == 0)
+                        notifyAll();
+                }
+            }
+        } catch (InterruptedException ignored) {
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package bguspl.set;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class GameHostTest {
+
+    /**
+     * Returns the properties of a game of two computer players without logs, with the given properties added.
+     *
+     * @param keysAndValues - pairs of a property key and its value.
+     */
+    private static Properties properties(String... keysAndValues) {
+        Properties properties = new Properties();
+        properties.put("HumanPlayers", "0");
+        properties.put("ComputerPlayers", "2");
+        properties.put("LogLevel", "OFF");
+        for (int i = 0; i < keysAndValues.length; i += 2)
+            properties.put(keysAndValues[i], keysAndValues[i + 1]);
+        return properties;
+    }
+
+    @Test
+    void run_PlaysAllTheGames() throws InterruptedException {
+        Properties properties = properties(
+                "FeatureCount", "2",
+                "Rows", "1",
+                "Columns", "3",
+                "TurnTimeoutSeconds", "0",
+                "PointFreezeSeconds", "0",
+                "PenaltyFreezeSeconds", "0",
+                "TableDelaySeconds", "0",
+                "EndGamePauseSeconds", "0");
+        UtilImplTest.MockLogger logger = new UtilImplTest.MockLogger();
+        Config config = new Config(logger, properties);
+        GameHost host = new GameHost(logger, config, new UtilImpl(config), 2);
+
+        List<GameHost.GameReport> reports = host.run(3);
+        host.shutdown();
+
+        assertEquals(3, reports.size());
+        for (int game = 0; game < reports.size(); ++game) {
+            assertEquals(game, reports.get(game).game);
+            // the game ends when no set is left, so at least one was collected:
+            assertTrue(reports.get(game).sets > 0);
+        }
+        assertTrue(GameHost.summary(reports, 1000).startsWith("3 games"));
+    }
+
+    @Test
+    void run_GamesDealDifferentCards() throws InterruptedException {
+        Properties properties = properties(
+                "RandomSeed", "1",
+                "TurnTimeoutSeconds", "0",
+                "TableDelaySeconds", "0",
+                "EndGamePauseSeconds", "0");
+        UtilImplTest.MockLogger logger = new UtilImplTest.MockLogger();
+        Config config = new Config(logger, properties);
+        List<List<Integer>> deals = Collections.synchronizedList(new ArrayList<>());
+        GameHost host = new GameHost(logger, config, new UtilImpl(config), 2, new ScaledClock(1000)) {
+            @Override
+            protected UserInterface userInterface(int game) {
+                List<Integer> dealt = Collections.synchronizedList(new ArrayList<>());
+                deals.add(dealt);
+                return new UserInterfaceHeadless() {
+                    @Override
+                    public void placeCard(int card, int slot) {
+                        dealt.add(card);
+                    }
+                };
+            }
+        };
+
+        host.run(2);
+        host.shutdown();
+
+        assertEquals(2, deals.size());
+        // the first deals of the two games (12 cards each):
+        assertNotEquals(deals.get(0).subList(0, 12), deals.get(1).subList(0, 12));
+    }
+
+    @Test
+    void run_CompressesTheDelaysOnAScaledClock() throws InterruptedException {
+        // the default delays: 60s turns, 1s/3s freezes, 0.1s table delay and a 5s pause at the end
+        Properties properties = properties("FeatureCount", "2", "Rows", "1", "Columns", "3");
+        UtilImplTest.MockLogger logger = new UtilImplTest.MockLogger();
+        Config config = new Config(logger, properties);
+        GameHost host = new GameHost(logger, config, new UtilImpl(config), 1, new ScaledClock(1000));
+
+        long start = System.currentTimeMillis();
+        List<GameHost.GameReport> reports = host.run(1);
+        host.shutdown();
+
+        assertEquals(1, reports.size());
+        assertTrue(reports.get(0).sets > 0);
+        assertTrue(System.currentTimeMillis() - start < 30000);
+    }
+
+    @Test
+    void run_PlaysThousandsOfBotsOnVirtualThreads() throws InterruptedException {
+        Properties properties = properties(
+                "FeatureCount", "2",
+                "Rows", "1",
+                "Columns", "3",
+                "ComputerPlayers", "2000",
+                "VirtualThreads", "True",
+                "TurnTimeoutSeconds", "0",
+                "EndGamePauseSeconds", "0");
+        UtilImplTest.MockLogger logger = new UtilImplTest.MockLogger();
+        Config config = new Config(logger, properties);
+        GameHost host = new GameHost(logger, config, new UtilImpl(config), 1, new ScaledClock(100));
+
+        List<GameHost.GameReport> reports = host.run(1);
+        host.shutdown();
+
+        assertEquals(1, reports.size());
+        assertTrue(reports.get(0).sets > 0);
+    }
+}
@@ -0,0 +1,36 @@
+package bguspl.set;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LatencyHistogramTest {
+
+    @Test
+    void buckets_CoverAllLatenciesInOrder() {
+        for (long nanos = 0; nanos < 100000; ++nanos) {
+            int bucket = LatencyHistogram.bucket(nanos);
+            assertTrue(nanos <= LatencyHistogram.upperBound(bucket));
+            assertTrue(bucket == 0 || nanos > LatencyHistogram.upperBound(bucket - 1));
+        }
+        assertEquals(Long.MAX_VALUE, LatencyHistogram.upperBound(LatencyHistogram.bucket(Long.MAX_VALUE)));
+    }
+
+    @Test
+    void percentile_WithinTheBucketPrecision() {
+        LatencyHistogram histogram = new LatencyHistogram("test");
+        assertEquals(0, histogram.percentile(50));
+        for (long micros = 1; micros <= 1000; ++micros)
+            histogram.record(micros * 1000);
+
+        assertEquals(1000, histogram.count());
+        assertEquals(1000000, histogram.max());
+        for (int percent : new int[] { 50, 90, 99 }) {
+            long exact = percent * 10000L;
+            long percentile = histogram.percentile(percent);
+            assertTrue(percentile >= exact && percentile <= exact * 1.25, percent + "%: " + percentile);
+        }
+        assertEquals(1000000, histogram.percentile(100));
+    }
+}
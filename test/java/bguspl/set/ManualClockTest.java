@@ -0,0 +1,82 @@
+package bguspl.set;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.locks.LockSupport;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ManualClockTest {
+
+    @Test
+    void millis_MovesOnlyWhenAdvanced() throws InterruptedException {
+        ManualClock clock = new ManualClock(100);
+        Thread.sleep(5);
+        assertEquals(100, clock.millis());
+        clock.advance(50);
+        assertEquals(150, clock.millis());
+        assertThrows(IllegalArgumentException.class, () -> clock.advance(-1));
+    }
+
+    @Test
+    void sleep_EndsWhenAdvancedPastTheDeadline() throws InterruptedException {
+        ManualClock clock = new ManualClock();
+        Thread sleeper = new Thread(() -> {
+            try {
+                clock.sleep(1000);
+            } catch (InterruptedException ignored) {
+            }
+        });
+        sleeper.start();
+        awaitWaiting(sleeper); // the deadline is relative to the time the sleep started
+        clock.advance(999);
+        sleeper.join(100);
+        assertTrue(sleeper.isAlive());
+        clock.advance(1);
+        sleeper.join(5000);
+        assertTrue(!sleeper.isAlive());
+    }
+
+    @Test
+    void parkUntil_WokenByAdvance() throws InterruptedException {
+        ManualClock clock = new ManualClock();
+        Thread waiter = new Thread(() -> {
+            try {
+                while (clock.millis() < 500)
+                    clock.parkUntil(500);
+            } catch (InterruptedException ignored) {
+            }
+        });
+        waiter.start();
+        clock.advance(200);
+        waiter.join(100);
+        assertTrue(waiter.isAlive());
+        clock.advance(300);
+        waiter.join(5000);
+        assertTrue(!waiter.isAlive());
+    }
+
+    @Test
+    void parkUntil_WokenByUnpark() throws InterruptedException {
+        ManualClock clock = new ManualClock();
+        Thread waiter = new Thread(() -> {
+            try {
+                clock.parkUntil(500);
+            } catch (InterruptedException ignored) {
+            }
+        });
+        waiter.start();
+        awaitWaiting(waiter);
+        LockSupport.unpark(waiter);
+        waiter.join(5000);
+        assertTrue(!waiter.isAlive());
+        assertEquals(0, clock.millis());
+    }
+
+    private static void awaitWaiting(Thread thread) throws InterruptedException {
+        while (thread.getState() != Thread.State.WAITING)
+            Thread.sleep(1);
+    }
+}
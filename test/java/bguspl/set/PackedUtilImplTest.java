@@ -0,0 +1,153 @@
+package bguspl.set;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+import java.util.Random;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PackedUtilImplTest {
+
+    private static Config config(int featureSize, int featureCount) {
+        Properties properties = new Properties();
+        properties.put("FeatureSize", Integer.toString(featureSize));
+        properties.put("FeatureCount", Integer.toString(featureCount));
+        return new Config(new UtilImplTest.MockLogger(), properties);
+    }
+
+    @Test
+    void cardToPacked_TwoBitsPerFeature() {
+        Config config = config(3, 12);
+        PackedUtilImpl util = new PackedUtilImpl(config);
+        Random random = new Random(0);
+        for (int round = 0; round < 1000; ++round) {
+            int card = random.nextInt(config.deckSize);
+            long packed = util.cardToPacked(card);
+            int[] features = util.cardToFeatures(card);
+            for (int i = 0; i < config.featureCount; ++i)
+                assertEquals(features[config.featureCount - 1 - i], (packed >>> (2 * i)) & 3);
+        }
+    }
+
+    @Test
+    void testSet_MatchesFeatureComparison() {
+        Config config = config(3, 4);
+        PackedUtilImpl util = new PackedUtilImpl(config);
+        int[] cards = new int[3];
+        for (cards[0] = 0; cards[0] < config.deckSize; ++cards[0])
+            for (cards[1] = 0; cards[1] < config.deckSize; ++cards[1])
+                for (cards[2] = cards[1]; cards[2] < config.deckSize; ++cards[2])
+                    assertEquals(util.testSetByFeatures(cards), util.testSet(cards));
+    }
+
+    @Test
+    void testSet_HighFeatureCount() {
+        Config config = config(3, 19);
+        PackedUtilImpl util = new PackedUtilImpl(config);
+        Random random = new Random(0);
+        int[] cards = new int[3];
+        for (int round = 0; round < 1000; ++round) {
+            cards[0] = random.nextInt(config.deckSize);
+            cards[1] = random.nextInt(config.deckSize);
+            // complete the first two cards and then break the set in one of the features half of the time
+            int[] first = util.cardToFeatures(cards[0]), second = util.cardToFeatures(cards[1]);
+            int third = 0;
+            for (int i = 0; i < config.featureCount; ++i)
+                third = third * 3 + (6 - first[i] - second[i]) % 3;
+            if (round % 2 == 1) third = third % 3 == 2 ? third - 1 : third + 1;
+            cards[2] = third;
+            assertEquals(util.testSetByFeatures(cards), util.testSet(cards));
+            assertEquals(round % 2 == 0, util.testSet(cards));
+        }
+    }
+
+    @Test
+    void searches_MatchUtilImpl() {
+        for (int featureCount = 3; featureCount <= 5; ++featureCount) {
+            Config config = config(3, featureCount);
+            PackedUtilImpl packed = new PackedUtilImpl(config);
+            UtilImpl util = new UtilImpl(config);
+            List<Integer> deck = IntStream.range(0, config.deckSize).boxed().collect(Collectors.toList());
+            Random random = new Random(featureCount);
+            for (int round = 0; round < 20; ++round) {
+                Collections.shuffle(deck, random);
+                int length = random.nextInt(config.deckSize + 1);
+                List<Integer> table = deck.subList(0, length);
+                int[] cards = table.stream().mapToInt(Integer::intValue).toArray();
+
+                assertSameSets(util.findSets(table, Integer.MAX_VALUE), packed.findSets(table, Integer.MAX_VALUE));
+                assertSameSets(util.findSets(table, 5), packed.findSets(table, 5));
+                assertSameSets(util.streamSets(cards, length).collect(Collectors.toList()),
+                        packed.streamSets(cards, length).collect(Collectors.toList()));
+                int[] expected = new int[10 * 3], actual = new int[10 * 3];
+                assertEquals(util.findSets(cards, length, expected), packed.findSets(cards, length, actual));
+                assertArrayEquals(expected, actual);
+
+                int[] expectedPerCard = new int[length], actualPerCard = new int[length];
+                assertEquals(util.countSets(cards, length, expectedPerCard), packed.countSets(cards, length, actualPerCard));
+                assertArrayEquals(expectedPerCard, actualPerCard);
+                if (length < config.deckSize) {
+                    int card = deck.get(length);
+                    assertEquals(util.countSetsWith(card, cards, length), packed.countSetsWith(card, cards, length));
+                }
+            }
+        }
+    }
+
+    @Test
+    void searches_HighFeatureCount() {
+        // too large a deck for the one-hot encoding of UtilImpl
+        Config config = config(3, 14);
+        PackedUtilImpl util = new PackedUtilImpl(config);
+        Random random = new Random(1);
+        int[] cards = new int[30];
+        for (int i = 0; i < cards.length; ++i)
+            cards[i] = random.nextInt(config.deckSize);
+        // a few sets among random cards (which rarely form sets with 14 features):
+        for (int i = 0; i + 2 < 12; i += 3) {
+            int[] first = util.cardToFeatures(cards[i]), second = util.cardToFeatures(cards[i + 1]);
+            int third = 0;
+            for (int f = 0; f < config.featureCount; ++f)
+                third = third * 3 + (6 - first[f] - second[f]) % 3;
+            cards[i + 2] = third;
+        }
+
+        int expected = 0;
+        int[] set = new int[3];
+        for (int i = 0; i < cards.length; ++i)
+            for (int j = i + 1; j < cards.length; ++j)
+                for (int k = j + 1; k < cards.length; ++k) {
+                    set[0] = cards[i];
+                    set[1] = cards[j];
+                    set[2] = cards[k];
+                    if (util.testSetByFeatures(set)) ++expected;
+                }
+        assertTrue(expected >= 4);
+        assertEquals(expected, util.countSets(cards, cards.length, null));
+        assertEquals(expected, util.findSets(Arrays.stream(cards).boxed().collect(Collectors.toList()), 100).size());
+        assertEquals(expected, util.streamSets(cards, cards.length).count());
+        for (int[] found : util.findSets(Arrays.stream(cards).boxed().collect(Collectors.toList()), 100))
+            assertTrue(util.testSetByFeatures(found));
+    }
+
+    private static void assertSameSets(List<int[]> expected, List<int[]> actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); ++i)
+            assertArrayEquals(expected.get(i), actual.get(i));
+    }
+
+    @Test
+    void unsupportedConfigurations() {
+        assertThrows(IllegalArgumentException.class, () -> new PackedUtilImpl(config(4, 4)));
+        assertThrows(IllegalArgumentException.class, () -> new PackedUtilImpl(config(3, PackedUtilImpl.MAX_FEATURE_COUNT + 1)));
+    }
+}
@@ -0,0 +1,41 @@
+package bguspl.set;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ScaledClockTest {
+
+    @Test
+    void millis_RunsFasterThanRealTime() throws InterruptedException {
+        ScaledClock clock = new ScaledClock(100);
+        long start = clock.millis();
+        Thread.sleep(20);
+        assertTrue(clock.millis() - start >= 2000);
+    }
+
+    @Test
+    void sleep_IsCompressed() throws InterruptedException {
+        ScaledClock clock = new ScaledClock(1000);
+        long start = clock.millis();
+        long realStart = System.nanoTime();
+        clock.sleep(10000);
+        assertTrue(clock.millis() - start >= 10000);
+        assertTrue(System.nanoTime() - realStart < 1000000000L);
+    }
+
+    @Test
+    void parkUntil_ReturnsAtTheDeadline() throws InterruptedException {
+        ScaledClock clock = new ScaledClock(1000);
+        long deadline = clock.millis() + 5000;
+        while (clock.millis() < deadline)
+            clock.parkUntil(deadline);
+        assertTrue(clock.millis() >= deadline);
+    }
+
+    @Test
+    void constructor_RejectsSlowerThanRealTime() {
+        assertThrows(IllegalArgumentException.class, () -> new ScaledClock(0.5));
+    }
+}
@@ -0,0 +1,280 @@
+package bguspl.set;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+import java.util.Random;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class UtilImplTest {
+
+    Config config;
+    UtilImpl util;
+
+    @BeforeEach
+    void setUp() {
+        Properties properties = new Properties();
+        properties.put("FeatureSize", "3");
+        properties.put("FeatureCount", "4");
+        config = new Config(new MockLogger(), properties);
+        util = new UtilImpl(config);
+    }
+
+    @Test
+    void testSet_LegalSets() {
+        // 0000, 1111, 2222 - all features are different
+        assertTrue(util.testSet(new int[]{0, 40, 80}));
+        // 0000, 0001, 0002 - only the last feature is different
+        assertTrue(util.testSet(new int[]{0, 1, 2}));
+    }
+
+    @Test
+    void testSet_IllegalSets() {
+        // 0000, 0001, 0011
+        assertFalse(util.testSet(new int[]{0, 1, 4}));
+        // 0000, 0000, 0001
+        assertFalse(util.testSet(new int[]{0, 0, 1}));
+    }
+
+    @Test
+    void testSet_MatchesFeatureComparison() {
+        int[] cards = new int[3];
+        for (cards[0] = 0; cards[0] < config.deckSize; ++cards[0])
+            for (cards[1] = cards[0] + 1; cards[1] < config.deckSize; ++cards[1])
+                for (cards[2] = cards[1] + 1; cards[2] < config.deckSize; ++cards[2])
+                    assertEquals(util.testSetByFeatures(cards), util.testSet(cards));
+    }
+
+    @Test
+    void cardToFeatureBits_OneBitPerFeature() {
+        for (int card = 0; card < config.deckSize; ++card) {
+            long bits = util.cardToFeatureBits(card);
+            int[] features = util.cardToFeatures(card);
+            assertEquals(config.featureCount, Long.bitCount(bits));
+            for (int i = 0; i < config.featureCount; ++i)
+                assertTrue((bits & 1L << (i * config.featureSize + features[i])) != 0);
+        }
+    }
+
+    private static List<String> sorted(List<int[]> sets) {
+        return sets.stream().map(Arrays::toString).sorted().collect(Collectors.toList());
+    }
+
+    @Test
+    void findSets_WholeDeck() {
+        List<Integer> deck = IntStream.range(0, config.deckSize).boxed().collect(Collectors.toList());
+        List<int[]> sets = util.findSets(deck, Integer.MAX_VALUE);
+        assertEquals(1080, sets.size());
+        assertEquals(sorted(util.findSetsByCombinations(deck, Integer.MAX_VALUE)), sorted(sets));
+        sets.forEach(set -> assertTrue(util.testSet(set)));
+    }
+
+    @Test
+    void findSets_MatchesCombinationsOnShuffledTables() {
+        List<Integer> deck = IntStream.range(0, config.deckSize).boxed().collect(Collectors.toList());
+        Random random = new Random(0);
+        for (int round = 0; round < 100; ++round) {
+            Collections.shuffle(deck, random);
+            List<Integer> table = new ArrayList<>(deck.subList(0, 12));
+            assertEquals(sorted(util.findSetsByCombinations(table, Integer.MAX_VALUE)),
+                    sorted(util.findSets(table, Integer.MAX_VALUE)));
+        }
+    }
+
+    @Test
+    void findSets_StopsAtCount() {
+        List<Integer> deck = IntStream.range(0, config.deckSize).boxed().collect(Collectors.toList());
+        assertEquals(1, util.findSets(deck, 1).size());
+        assertEquals(0, util.findSets(Arrays.asList(0, 1, 4), 1).size());
+    }
+
+    @Test
+    void findSets_PrimitiveMatchesList() {
+        List<Integer> deck = IntStream.range(0, config.deckSize).boxed().collect(Collectors.toList());
+        Random random = new Random(1);
+        int[] cards = new int[config.deckSize];
+        int[] sets = new int[config.deckSize * config.deckSize * config.featureSize];
+        for (int round = 0; round < 100; ++round) {
+            Collections.shuffle(deck, random);
+            int length = 3 + random.nextInt(config.deckSize - 3);
+            for (int i = 0; i < length; ++i)
+                cards[i] = deck.get(i);
+
+            int setsFound = util.findSets(cards, length, sets);
+            List<int[]> found = new ArrayList<>();
+            for (int i = 0; i < setsFound; ++i)
+                found.add(Arrays.copyOfRange(sets, i * config.featureSize, (i + 1) * config.featureSize));
+            assertEquals(sorted(util.findSets(deck.subList(0, length), Integer.MAX_VALUE)), sorted(found));
+        }
+    }
+
+    @Test
+    void findSets_PrimitiveStopsWhenBufferIsFull() {
+        int[] cards = IntStream.range(0, config.deckSize).toArray();
+        int[] set = new int[config.featureSize];
+        assertEquals(1, util.findSets(cards, cards.length, set));
+        assertTrue(util.testSet(set));
+        assertEquals(0, util.findSets(new int[]{0, 1, 4}, 3, set));
+        assertEquals(0, util.findSets(cards, 2, set));
+    }
+
+    @Test
+    void countSetsWith_EveryCardCompletesEveryPair() {
+        // every other card pairs up with the card in exactly one set
+        int[] others = new int[config.deckSize - 1];
+        for (int card = 0; card < config.deckSize; ++card) {
+            for (int i = 0, j = 0; i < config.deckSize; ++i)
+                if (i != card) others[j++] = i;
+            assertEquals((config.deckSize - 1) / 2, util.countSetsWith(card, others, others.length));
+        }
+        assertEquals(1, util.countSetsWith(2, new int[]{0, 1, 4}, 3));
+        assertEquals(0, util.countSetsWith(2, new int[]{0, 4}, 2));
+    }
+
+    @Test
+    void findSets_ParallelMatchesSequential() {
+        for (int featureCount = 4; featureCount <= 6; ++featureCount) {
+            Properties properties = new Properties();
+            properties.put("FeatureCount", Integer.toString(featureCount));
+            properties.put("SetSearchParallelism", "1");
+            Config sequentialConfig = new Config(new MockLogger(), properties);
+            properties.put("SetSearchParallelism", "4");
+            properties.put("ParallelSetSearchThreshold", "0");
+            Config parallelConfig = new Config(new MockLogger(), properties);
+
+            List<Integer> deck = IntStream.range(0, sequentialConfig.deckSize).boxed().collect(Collectors.toList());
+            Collections.shuffle(deck, new Random(featureCount));
+            List<int[]> sequential = new UtilImpl(sequentialConfig).findSets(deck, Integer.MAX_VALUE);
+            UtilImpl parallelUtil = new UtilImpl(parallelConfig);
+            List<int[]> parallel = parallelUtil.findSets(deck, Integer.MAX_VALUE);
+            assertEquals(sequential.size(), parallel.size());
+            for (int i = 0; i < sequential.size(); ++i)
+                assertArrayEquals(sequential.get(i), parallel.get(i));
+
+            int[] sets = new int[10 * parallelConfig.featureSize];
+            int[] cards = deck.stream().mapToInt(Integer::intValue).toArray();
+            assertEquals(10, parallelUtil.findSets(cards, cards.length, sets));
+            for (int i = 0; i < 10; ++i)
+                assertTrue(parallelUtil.testSet(Arrays.copyOfRange(sets, i * 3, i * 3 + 3)));
+        }
+    }
+
+    @Test
+    void findSets_LimitedParallelMatchesSequential() {
+        Properties properties = new Properties();
+        properties.put("FeatureCount", "5");
+        properties.put("SetSearchParallelism", "1");
+        Config sequentialConfig = new Config(new MockLogger(), properties);
+        properties.put("SetSearchParallelism", "4");
+        properties.put("ParallelSetSearchThreshold", "0");
+        Config parallelConfig = new Config(new MockLogger(), properties);
+        UtilImpl sequentialUtil = new UtilImpl(sequentialConfig);
+        UtilImpl parallelUtil = new UtilImpl(parallelConfig);
+
+        List<Integer> deck = IntStream.range(0, sequentialConfig.deckSize).boxed().collect(Collectors.toList());
+        Collections.shuffle(deck, new Random(0));
+        // the limits end the search in the first, a middle and the last of the parallel tasks (the deck has 9801 sets)
+        for (int count : new int[]{1, 10, 1000, 5000, 9801}) {
+            List<int[]> sequential = sequentialUtil.findSets(deck, count);
+            for (int run = 0; run < 5; ++run) {
+                List<int[]> parallel = parallelUtil.findSets(deck, count);
+                assertEquals(sequential.size(), parallel.size());
+                for (int i = 0; i < sequential.size(); ++i)
+                    assertArrayEquals(sequential.get(i), parallel.get(i));
+            }
+        }
+    }
+
+    @Test
+    void streamSets_MatchesFindSets() {
+        for (int featureCount = 3; featureCount <= 5; ++featureCount) {
+            Properties properties = new Properties();
+            properties.put("FeatureCount", Integer.toString(featureCount));
+            Config config = new Config(new MockLogger(), properties);
+            UtilImpl util = new UtilImpl(config);
+            List<Integer> deck = IntStream.range(0, config.deckSize).boxed().collect(Collectors.toList());
+            Collections.shuffle(deck, new Random(featureCount));
+            int[] cards = deck.stream().mapToInt(Integer::intValue).toArray();
+
+            List<int[]> expected = util.findSets(deck, Integer.MAX_VALUE);
+            List<int[]> streamed = util.streamSets(cards, cards.length).collect(Collectors.toList());
+            assertEquals(expected.size(), streamed.size());
+            for (int i = 0; i < expected.size(); ++i)
+                assertArrayEquals(expected.get(i), streamed.get(i));
+            assertEquals(sorted(expected),
+                    sorted(util.streamSets(cards, cards.length).parallel().collect(Collectors.toList())));
+        }
+    }
+
+    @Test
+    void streamSets_IsLazy() {
+        int[] cards = IntStream.range(0, config.deckSize).toArray();
+        int[] first = util.streamSets(cards, cards.length).findFirst().orElse(null);
+        assertTrue(first != null && util.testSet(first));
+        assertEquals(5, util.streamSets(cards, cards.length).limit(5).count());
+        assertEquals(0, util.streamSets(new int[]{0, 1, 4}, 3).count());
+
+        // the cards are copied when the stream is created
+        int[] table = {0, 1, 2};
+        Stream<int[]> sets = util.streamSets(table, table.length);
+        table[2] = 4;
+        assertEquals(1, sets.count());
+    }
+
+    @Test
+    void countSets_MatchesFindSets() {
+        assertCountSetsMatchesFindSets(config, util);
+        assertEquals(1080, util.countSets(IntStream.range(0, config.deckSize).toArray(), config.deckSize, null));
+    }
+
+    @Test
+    void countSets_MatchesFindSetsWithFourValuesPerFeature() {
+        // most pairs of cards have no completing card when there are more than 3 values per feature
+        Properties properties = new Properties();
+        properties.put("FeatureSize", "4");
+        properties.put("FeatureCount", "3");
+        Config config = new Config(new MockLogger(), properties);
+        assertCountSetsMatchesFindSets(config, new UtilImpl(config));
+    }
+
+    private static void assertCountSetsMatchesFindSets(Config config, UtilImpl util) {
+        List<Integer> deck = IntStream.range(0, config.deckSize).boxed().collect(Collectors.toList());
+        Random random = new Random(2);
+        int[] cards = new int[config.deckSize];
+        int[] setsPerCard = new int[config.deckSize];
+        for (int round = 0; round < 100; ++round) {
+            Collections.shuffle(deck, random);
+            int length = random.nextInt(config.deckSize + 1);
+            for (int i = 0; i < length; ++i)
+                cards[i] = deck.get(i);
+
+            List<int[]> sets = util.findSets(deck.subList(0, length), Integer.MAX_VALUE);
+            assertEquals(sets.size(), util.countSets(cards, length, null));
+            assertEquals(sets.size(), util.countSets(cards, length, setsPerCard));
+            for (int i = 0; i < length; ++i) {
+                int card = cards[i];
+                assertEquals(sets.stream().filter(set -> Arrays.stream(set).anyMatch(c -> c == card)).count(),
+                        setsPerCard[i]);
+            }
+        }
+    }
+
+    static class MockLogger extends Logger {
+        protected MockLogger() {
+            super("", null);
+        }
+    }
+}
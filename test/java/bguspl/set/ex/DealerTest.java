@@ -4,6 +4,7 @@ import bguspl.set.Config;
 import bguspl.set.Env;
 import bguspl.set.UserInterface;
 import bguspl.set.Util;
+import bguspl.set.UtilImpl;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -11,16 +12,27 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Properties;
 import java.util.logging.Logger;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
 
 @ExtendWith(MockitoExtension.class)
 class DealerTest {
 
     Dealer dealer;
+    Player[] players;
     @Mock
     Util util;
     @Mock
@@ -34,7 +46,7 @@ class DealerTest {
     void setUp() {
         // purposely do not find the configuration files (use defaults here).
         Env env = new Env(logger, new Config(logger, (String) null), ui, util);
-        Player[] players = { new Player(env, dealer, table, 0, false), new Player(env, dealer, table, 1, false) };
+        players = new Player[] { new Player(env, dealer, table, 0, false), new Player(env, dealer, table, 1, false) };
         table = new Table(env);
         dealer = new Dealer(env, table, players);
     }
@@ -68,4 +80,154 @@ class DealerTest {
         assertEquals(81, dealer.deck.size());
     }
 
+    @Test
+    void placeCardsTest_SameSeedDealsTheSameCards() {
+        Properties properties = properties("RandomSeed", "42");
+        Integer[][] dealt = new Integer[2][];
+        for (int run = 0; run < 2; run++) {
+            Env env = new Env(logger, new Config(logger, properties), ui, util);
+            Table table = new Table(env);
+            new Dealer(env, table, players).placeCardsOnTable();
+            dealt[run] = table.slotToCard;
+        }
+        assertArrayEquals(dealt[0], dealt[1]);
+    }
+
+    @Test
+    void placeCardsTest_WithoutCountdownEveryDealHasASet() {
+        // on a table of three cards, a random deal is a set only once in 79 deals
+        Properties properties = properties("TurnTimeoutSeconds", "0", "Rows", "1", "Columns", "3");
+        for (int seed = 0; seed < 50; seed++) {
+            properties.put("RandomSeed", Integer.toString(seed));
+            Config config = new Config(logger, properties);
+            Env env = new Env(logger, config, ui, new UtilImpl(config));
+            Table table = new Table(env);
+            Dealer dealer = new Dealer(env, table, players);
+            dealer.placeCardsOnTable();
+            assertEquals(1, table.setsOnTable());
+            assertEquals(78, dealer.deck.size());
+        }
+    }
+
+    @Test
+    void removeCardsFromTable_RejectsLaterOverlappingClaimWithoutPenalty() {
+        dealer.placeCardsOnTable();
+        when(util.testSet(any())).thenReturn(true);
+        // both players claim a set with the card in slot 2, player 0 first:
+        claim(players[0], 0, 1, 2);
+        claim(players[1], 2, 3, 4);
+
+        dealer.removeCardsFromTable();
+
+        assertTrue(dealer.setsCheck.isEmpty());
+        assertEquals(1, players[0].score());
+        assertEquals(0, players[1].score());
+        assertEquals(0, players[1].freezeEndTime); // no penalty
+        assertEquals(9, table.countCards());
+        assertTrue(players[0].slotTokenQ.isEmpty());
+        assertEquals(Arrays.asList(3, 4), new ArrayList<>(players[1].slotTokenQ));
+        assertEquals(2, dealer.claimQueueLatency.count());
+        assertEquals(2, dealer.claimVerifyLatency.count());
+    }
+
+    @Test
+    void removeCardsFromTable_DropsTokensPlacedOnReplacedCards() {
+        dealer.placeCardsOnTable();
+        // the card in slot 1 is replaced after the token was placed on it:
+        claim(players[0], 0, 1, 2);
+        int card = table.slotToCard[1];
+        table.removeCard(1);
+        table.placeCard(card, 1);
+
+        dealer.removeCardsFromTable();
+
+        assertEquals(0, players[0].score());
+        assertEquals(0, players[0].freezeEndTime); // no penalty
+        assertEquals(12, table.countCards());
+        assertEquals(Arrays.asList(0, 2), new ArrayList<>(players[0].slotTokenQ));
+        table.finishAnimations();
+        verify(ui).removeToken(0, 1);
+    }
+
+    @Test
+    void removeCardsFromTable_JudgesOnlyWaitingPlayersOnce() {
+        dealer.placeCardsOnTable();
+        when(util.testSet(any())).thenReturn(false);
+        // player 0 was released by a reshuffle before queueing its id, and player 1's id is queued twice:
+        dealer.setsCheck.offer(0);
+        placeTokens(players[0], 0, 1, 2);
+        claim(players[1], 3, 4, 5);
+        dealer.setsCheck.offer(1);
+
+        dealer.removeCardsFromTable();
+
+        assertTrue(dealer.setsCheck.isEmpty());
+        assertEquals(0, players[0].freezeEndTime); // not judged
+        assertEquals(Arrays.asList(0, 1, 2), new ArrayList<>(players[0].slotTokenQ));
+        assertTrue(players[1].freezeEndTime > 0); // one penalty
+        assertFalse(players[1].waitForDealerDecision);
+        assertEquals(1, dealer.claimVerifyLatency.count());
+    }
+
+    @Test
+    void run_IdleWithoutCountdownUsesNoCpu() throws InterruptedException {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        assumeTrue(threads.isThreadCpuTimeSupported());
+        threads.setThreadCpuTimeEnabled(true);
+
+        Config config = new Config(logger, properties("TurnTimeoutSeconds", "-1", "EndGamePauseSeconds", "0"));
+        Env env = new Env(logger, config, ui, new UtilImpl(config));
+        Table idleTable = new Table(env);
+        Player[] humans = new Player[config.players];
+        Dealer idleDealer = new Dealer(env, idleTable, humans);
+        for (int i = 0; i < humans.length; i++)
+            humans[i] = new Player(env, idleDealer, idleTable, i, true);
+
+        Thread dealerThread = new Thread(idleDealer, "dealer");
+        dealerThread.start();
+        Thread.sleep(200); // letting the dealer deal and park
+
+        long cpuBefore = threads.getThreadCpuTime(dealerThread.threadId());
+        Thread.sleep(500);
+        long cpuNanos = threads.getThreadCpuTime(dealerThread.threadId()) - cpuBefore;
+        // with no countdown and no claims there is nothing to wake up for:
+        assertTrue(cpuNanos < 20_000_000, "the idle dealer used " + cpuNanos / 1000000 + "ms of cpu");
+
+        idleDealer.terminate();
+        dealerThread.join(5000);
+        assertFalse(dealerThread.isAlive());
+    }
+
+    /**
+     * Returns properties without a table delay (so the tests do not wait for the ui), with the given properties added.
+     *
+     * @param keysAndValues - pairs of a property key and its value.
+     */
+    private static Properties properties(String... keysAndValues) {
+        Properties properties = new Properties();
+        properties.put("TableDelaySeconds", "0");
+        for (int i = 0; i < keysAndValues.length; i += 2)
+            properties.put(keysAndValues[i], keysAndValues[i + 1]);
+        return properties;
+    }
+
+    /**
+     * Places the player's tokens and submits them the way the player thread does.
+     */
+    private void claim(Player player, int... slots) {
+        placeTokens(player, slots);
+        player.waitForDealerDecision = true;
+        dealer.setsCheck.offer(player.id);
+    }
+
+    /**
+     * Places the player's tokens the way the player thread does (recording the slot versions).
+     */
+    private void placeTokens(Player player, int... slots) {
+        for (int slot : slots) {
+            player.tokenVersions.set(slot, table.slotVersion(slot));
+            player.slotTokenQ.offer(slot);
+        }
+    }
+
 }
@@ -0,0 +1,52 @@
+package bguspl.set.ex;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.NoSuchElementException;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DrawPileTest {
+
+    DrawPile pile;
+
+    @BeforeEach
+    void setUp() {
+        pile = new DrawPile(81, new SplittableRandom(7));
+    }
+
+    @Test
+    void draw_EachCardOnce() {
+        boolean[] drawn = new boolean[81];
+        while (!pile.isEmpty()) {
+            int card = pile.draw();
+            assertFalse(drawn[card]);
+            drawn[card] = true;
+        }
+        for (boolean card : drawn)
+            assertTrue(card);
+        assertThrows(NoSuchElementException.class, pile::draw);
+    }
+
+    @Test
+    void addAll_ReturnsCardsToThePile() {
+        int[] table = new int[12];
+        for (int i = 0; i < table.length; ++i)
+            table[i] = pile.draw();
+        assertEquals(69, pile.size());
+
+        pile.addAll(table, table.length);
+
+        assertEquals(81, pile.size());
+        boolean[] drawn = new boolean[81];
+        while (!pile.isEmpty())
+            drawn[pile.draw()] = true;
+        for (boolean card : drawn)
+            assertTrue(card);
+    }
+}
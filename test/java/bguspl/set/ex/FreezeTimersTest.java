@@ -0,0 +1,43 @@
+package bguspl.set.ex;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class FreezeTimersTest {
+
+    FreezeTimers timers;
+
+    @BeforeEach
+    void setUp() {
+        timers = new FreezeTimers(4);
+    }
+
+    @Test
+    void pollDue_PlayersInOrderOfTheirTimes() {
+        timers.schedule(0, 300);
+        timers.schedule(1, 100);
+        timers.schedule(2, 400);
+        timers.schedule(3, 200);
+
+        assertEquals(100, timers.nextDue());
+        assertEquals(1, timers.pollDue(250));
+        assertEquals(3, timers.pollDue(250));
+        assertEquals(FreezeTimers.NONE, timers.pollDue(250));
+        assertEquals(300, timers.nextDue());
+    }
+
+    @Test
+    void schedule_ReschedulesAPlayerAlreadyWaiting() {
+        timers.schedule(0, 100);
+        timers.schedule(1, 200);
+        timers.schedule(0, 300);
+
+        assertEquals(200, timers.nextDue());
+        assertEquals(1, timers.pollDue(1000));
+        assertEquals(0, timers.pollDue(1000));
+        assertEquals(FreezeTimers.NONE, timers.pollDue(1000));
+        assertEquals(Long.MAX_VALUE, timers.nextDue());
+    }
+}
@@ -2,8 +2,10 @@ package bguspl.set.ex;
 
 import bguspl.set.Config;
 import bguspl.set.Env;
+import bguspl.set.ManualClock;
 import bguspl.set.UserInterface;
 import bguspl.set.Util;
+import bguspl.set.UtilImpl;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -11,11 +13,17 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Properties;
 import java.util.logging.Logger;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.timeout;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -94,6 +102,148 @@ class PlayerTest {
         assertEquals(2, player.slotPressedQ.size());
     }
 
+    @Test
+    void keyPressed_IgnoredUntilTheFreezeEnds() {
+        ManualClock clock = new ManualClock();
+        Env env = new Env(logger, new Config(logger, (String) null), ui, util, clock);
+        Player frozen = new Player(env, dealer, table, 1, false);
+        dealer.allowPlaying = true;
+
+        frozen.penalty();
+        frozen.keyPressed(1);
+        assertTrue(frozen.slotPressedQ.isEmpty());
+
+        clock.advance(env.config.penaltyFreezeMillis - 1);
+        frozen.keyPressed(1);
+        assertTrue(frozen.slotPressedQ.isEmpty());
+
+        clock.advance(1);
+        frozen.keyPressed(1);
+        assertEquals(1, frozen.slotPressedQ.size());
+    }
+
+    @Test
+    void run_IdleHumanPlayersUseNoCpu() throws InterruptedException {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        assumeTrue(threads.isThreadCpuTimeSupported());
+        threads.setThreadCpuTimeEnabled(true);
+
+        Env env = new Env(logger, new Config(logger, (String) null), ui, util);
+        Player[] humans = { new Player(env, dealer, table, 0, true), new Player(env, dealer, table, 1, true) };
+        Thread[] humanThreads = new Thread[humans.length];
+        for (int i = 0; i < humans.length; i++) {
+            humanThreads[i] = new Thread(humans[i], "player" + i);
+            humanThreads[i].start();
+        }
+        Thread.sleep(100); // letting the threads start and block
+
+        long cpuBefore = 0;
+        for (Thread thread : humanThreads)
+            cpuBefore += threads.getThreadCpuTime(thread.threadId());
+        Thread.sleep(500);
+        long cpuNanos = -cpuBefore;
+        for (Thread thread : humanThreads)
+            cpuNanos += threads.getThreadCpuTime(thread.threadId());
+
+        // a spinning loop would use about the whole 500ms of a core:
+        assertTrue(cpuNanos < 20_000_000, "idle players used " + cpuNanos / 1000000 + "ms of cpu");
+
+        for (int i = humans.length - 1; i >= 0; i--) {
+            humans[i].terminate();
+            humanThreads[i].join(1000);
+            assertFalse(humanThreads[i].isAlive());
+        }
+    }
+
+    /**
+     * Returns the environment of a game of a single smart computer player that reacts at once.
+     */
+    private Env smartBotEnv() {
+        Properties properties = new Properties();
+        properties.put("HumanPlayers", "0");
+        properties.put("ComputerPlayers", "1");
+        properties.put("SmartComputerPlayers", "True");
+        properties.put("ComputerReactionSeconds", "0");
+        properties.put("TableDelaySeconds", "0");
+        Config config = new Config(logger, properties);
+        return new Env(logger, config, ui, new UtilImpl(config));
+    }
+
+    @Test
+    void claimSets_SmartComputerPlayerClaimsALegalSet() throws InterruptedException {
+        Env env = smartBotEnv();
+        Table realTable = new Table(env);
+        for (int slot = 0; slot < env.config.tableSize; slot++)
+            realTable.placeCard(slot, slot); // cards 0, 1 and 2 (at least) form a set
+        Player bot = new Player(env, dealer, realTable, 0, false);
+        dealer.allowPlaying = true;
+
+        Thread botThread = new Thread(bot, "player0");
+        botThread.start();
+        verify(dealer, timeout(5000)).submitClaim(0);
+
+        int[] claim = new int[Dealer.SET_SIZE];
+        int tokens = 0;
+        for (int slot : bot.slotTokenQ)
+            claim[tokens++] = realTable.slotToCard[slot];
+        assertEquals(Dealer.SET_SIZE, tokens);
+        assertTrue(env.util.testSet(claim));
+
+        bot.terminate();
+        botThread.join(1000);
+        assertFalse(botThread.isAlive());
+    }
+
+    @Test
+    void claimSets_SmartComputerPlayerParksUntilPlayingIsAllowed() throws InterruptedException {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        assumeTrue(threads.isThreadCpuTimeSupported());
+        threads.setThreadCpuTimeEnabled(true);
+
+        Env env = smartBotEnv();
+        Table realTable = new Table(env);
+        for (int slot = 0; slot < env.config.tableSize; slot++)
+            realTable.placeCard(slot, slot);
+        Player bot = new Player(env, dealer, realTable, 0, false);
+        dealer.allowPlaying = false;
+
+        Thread botThread = new Thread(bot, "player0");
+        botThread.start();
+        Thread.sleep(100); // letting the threads start and block
+        long aiThreadId = -1;
+        for (Thread thread : Thread.getAllStackTraces().keySet())
+            if (thread.getName().equals("computer-0"))
+                aiThreadId = thread.threadId();
+        assertTrue(aiThreadId != -1);
+
+        long cpuBefore = threads.getThreadCpuTime(aiThreadId) + threads.getThreadCpuTime(botThread.threadId());
+        Thread.sleep(500);
+        long cpuNanos = threads.getThreadCpuTime(aiThreadId) + threads.getThreadCpuTime(botThread.threadId())
+                - cpuBefore;
+        assertTrue(cpuNanos < 5_000_000, "a waiting bot used " + cpuNanos / 1000000 + "ms of cpu");
+        assertTrue(bot.slotPressedQ.isEmpty());
+
+        // the dealer wakes the bots once playing is allowed:
+        dealer.allowPlaying = true;
+        bot.wakeAi();
+        verify(dealer, timeout(5000)).submitClaim(0);
+
+        bot.terminate();
+        botThread.join(1000);
+        assertFalse(botThread.isAlive());
+    }
+
+    @Test
+    void dealerDecided_OnlyReleasesThePlayerAfterStampingTheDecision() {
+        player.waitForDealerDecision = true;
+        player.penalty();
+        assertTrue(player.waitForDealerDecision); // still waiting until the dealer is done with the claim
+
+        player.dealerDecided();
+        assertFalse(player.waitForDealerDecision);
+        assertTrue(player.claimDecidedNanos != 0);
+    }
+
     @Test 
     void penaltyNoPointTest(){
         int expectedScore = player.score() ;
@@ -0,0 +1,77 @@
+package bguspl.set.ex;
+
+import bguspl.set.Config;
+import bguspl.set.Env;
+import bguspl.set.Util;
+import bguspl.set.UtilImpl;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+import java.util.Random;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class SetTrackerTest {
+
+    SetTracker tracker;
+    private Config config;
+    private Util util;
+
+    @BeforeEach
+    void setUp() {
+        Properties properties = new Properties();
+        properties.put("FeatureSize", "3");
+        properties.put("FeatureCount", "4");
+        TableTest.MockLogger logger = new TableTest.MockLogger();
+        config = new Config(logger, properties);
+        util = new UtilImpl(config);
+        tracker = new SetTracker(new Env(logger, config, new TableTest.MockUserInterface(), util));
+    }
+
+    @Test
+    void wholeDeck() {
+        assertEquals(config.deckSize, tracker.size());
+        assertEquals(1080, tracker.sets());
+    }
+
+    @Test
+    void setsInDeck_MatchesFullSearch() {
+        for (int featureSize = 2; featureSize <= 5; featureSize++) {
+            for (int featureCount = 1; featureCount <= 3; featureCount++) {
+                Properties properties = new Properties();
+                properties.put("FeatureSize", Integer.toString(featureSize));
+                properties.put("FeatureCount", Integer.toString(featureCount));
+                Config config = new Config(new TableTest.MockLogger(), properties);
+                int[] deck = IntStream.range(0, config.deckSize).toArray();
+                assertEquals(new UtilImpl(config).countSets(deck, deck.length, null), SetTracker.setsInDeck(config));
+            }
+        }
+    }
+
+    @Test
+    void removeCards_MatchesFullSearch() {
+        List<Integer> deck = IntStream.range(0, config.deckSize).boxed().collect(Collectors.toList());
+        Collections.shuffle(deck, new Random(0));
+        int[] sets = new int[config.deckSize * config.deckSize * config.featureSize];
+        while (!deck.isEmpty()) {
+            tracker.remove(deck.remove(deck.size() - 1));
+            int[] cards = deck.stream().mapToInt(Integer::intValue).toArray();
+            assertEquals(deck.size(), tracker.size());
+            assertEquals(util.findSets(cards, cards.length, sets), tracker.sets());
+        }
+    }
+
+    @Test
+    void removeCard_Twice() {
+        tracker.remove(0);
+        long sets = tracker.sets();
+        tracker.remove(0);
+        assertEquals(sets, tracker.sets());
+        assertEquals(config.deckSize - 1, tracker.size());
+    }
+}
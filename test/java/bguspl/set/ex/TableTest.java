@@ -4,17 +4,26 @@ import bguspl.set.Config;
 import bguspl.set.Env;
 import bguspl.set.UserInterface;
 import bguspl.set.Util;
+import bguspl.set.UtilImpl;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.time.Duration;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Properties;
+import java.util.Random;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.logging.Logger;
+import java.util.stream.Stream;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 class TableTest {
@@ -22,6 +31,8 @@ class TableTest {
     Table table;
     private Integer[] slotToCard;
     private Integer[] cardToSlot;
+    private Config config;
+    private MockLogger logger;
 
     @BeforeEach
     void setUp() {
@@ -34,8 +45,8 @@ class TableTest {
         properties.put("TableDelaySeconds", "0");
         properties.put("PlayerKeys1", "81,87,69,82");
         properties.put("PlayerKeys2", "85,73,79,80");
-        MockLogger logger = new MockLogger();
-        Config config = new Config(logger, properties);
+        logger = new MockLogger();
+        config = new Config(logger, properties);
         slotToCard = new Integer[config.tableSize];
         cardToSlot = new Integer[config.deckSize];
 
@@ -160,6 +171,11 @@ class TableTest {
             return new int[0][];
         }
 
+        @Override
+        public long cardToFeatureBits(int card) {
+            return 0;
+        }
+
         @Override
         public boolean testSet(int[] cards) {
             return false;
@@ -170,6 +186,26 @@ class TableTest {
             return null;
         }
 
+        @Override
+        public int findSets(int[] cards, int length, int[] sets) {
+            return 0;
+        }
+
+        @Override
+        public Stream<int[]> streamSets(int[] cards, int length) {
+            return Stream.empty();
+        }
+
+        @Override
+        public int countSets(int[] cards, int length, int[] setsPerCard) {
+            return 0;
+        }
+
+        @Override
+        public int countSetsWith(int card, int[] cards, int length) {
+            return 0;
+        }
+
         @Override
         public void spin() {
         }
@@ -204,4 +240,150 @@ class TableTest {
         assertTrue(checkList.contains(2));
         assertFalse(checkList.contains(3));
     }
+
+    @Test
+    void slotVersion_ChangesWithTheCardInTheSlot() {
+        int empty = table.slotVersion(3);
+        table.placeCard(7, 3);
+        int placed = table.slotVersion(3);
+        table.removeCard(3);
+        int removed = table.slotVersion(3);
+
+        assertNotEquals(empty, placed);
+        assertNotEquals(placed, removed);
+        assertEquals(removed, table.slotVersion(3));
+        assertEquals(0, table.slotVersion(2));
+    }
+
+    @Test
+    void placeCard_UpdatesTheModelBeforeTheDelayedUi() {
+        Properties properties = new Properties();
+        properties.put("Rows", "2");
+        properties.put("Columns", "2");
+        properties.put("TableDelaySeconds", "0.2");
+        Config config = new Config(logger, properties);
+        List<Integer> shown = new CopyOnWriteArrayList<>();
+        Table table = new Table(new Env(logger, config, new MockUserInterface() {
+            @Override
+            public void placeCard(int card, int slot) {
+                shown.add(card);
+            }
+        }, new MockUtil()));
+
+        table.placeCard(7, 0);
+        table.placeCard(8, 1);
+
+        assertEquals(7, (int) table.slotToCard[0]);
+        assertEquals(8, (int) table.slotToCard[1]);
+        assertTrue(shown.isEmpty());
+        table.finishAnimations();
+        assertEquals(Arrays.asList(7, 8), shown);
+    }
+
+    @Test
+    void finishAnimations_AnimatesOnAThreadOfTheGame() {
+        Properties properties = new Properties();
+        properties.put("Rows", "2");
+        properties.put("Columns", "2");
+        properties.put("TableDelaySeconds", "0.01");
+        properties.put("VirtualThreads", "True");
+        Config config = new Config(logger, properties);
+        List<Thread> animators = new CopyOnWriteArrayList<>();
+        Table table = new Table(new Env(logger, config, new MockUserInterface() {
+            @Override
+            public void placeCard(int card, int slot) {
+                animators.add(Thread.currentThread());
+            }
+        }, new MockUtil()));
+
+        table.placeCard(7, 0);
+        table.finishAnimations();
+
+        assertEquals(1, animators.size());
+        assertTrue(animators.get(0).isVirtual()); // created by env.threads
+        assertFalse(animators.get(0).isAlive()); // stopped by finishAnimations
+    }
+
+    @Test
+    void finishAnimations_Interrupted() {
+        Properties properties = new Properties();
+        properties.put("Rows", "2");
+        properties.put("Columns", "2");
+        properties.put("TableDelaySeconds", "60");
+        Config config = new Config(logger, properties);
+        Table table = new Table(new Env(logger, config, new MockUserInterface(), new MockUtil()));
+
+        table.placeCard(7, 0);
+        table.placeCard(8, 1);
+        Thread.currentThread().interrupt();
+        table.finishAnimations();
+
+        assertTrue(Thread.interrupted()); // the interrupt is kept for the caller
+        // the abandoned updates are not waited for again:
+        assertTimeoutPreemptively(Duration.ofSeconds(5), table::finishAnimations);
+    }
+
+    @Test
+    void setsOnTable_UpdatedByPlaceAndRemove() {
+        Table table = new Table(new Env(logger, config, new MockUserInterface(), new UtilImpl(config)));
+        table.placeCard(0, 0);
+        table.placeCard(1, 1);
+        assertEquals(0, table.setsOnTable());
+        table.placeCard(2, 2); // 0000, 0001, 0002
+        assertEquals(1, table.setsOnTable());
+        table.placeCard(4, 3); // 0011
+        assertEquals(1, table.setsOnTable());
+        table.removeCard(1);
+        assertEquals(0, table.setsOnTable());
+    }
+
+    @Test
+    void setsOnTable_CountsTheCardsGivenToTheConstructor() {
+        slotToCard[0] = 0;
+        slotToCard[1] = 1;
+        slotToCard[2] = 2; // 0000, 0001, 0002
+        slotToCard[3] = 4; // 0011
+        for (int slot = 0; slot < slotToCard.length; ++slot)
+            cardToSlot[slotToCard[slot]] = slot;
+        Table table = new Table(new Env(logger, config, new MockUserInterface(), new UtilImpl(config)), slotToCard,
+                cardToSlot);
+        assertEquals(1, table.setsOnTable());
+        table.removeCard(1);
+        assertEquals(0, table.setsOnTable());
+    }
+
+    @Test
+    void setsOnTable_MatchesFullSearch() {
+        Util util = new UtilImpl(config);
+        Table table = new Table(new Env(logger, config, new MockUserInterface(), util));
+        Random random = new Random(0);
+        int[] cards = new int[config.tableSize];
+        int[] sets = new int[config.tableSize * config.tableSize * config.featureSize];
+        for (int round = 0; round < 1000; ++round) {
+            int slot = random.nextInt(config.tableSize);
+            if (table.slotToCard[slot] != null)
+                table.removeCard(slot);
+            else {
+                int card = random.nextInt(config.deckSize);
+                if (table.cardToSlot[card] == null)
+                    table.placeCard(card, slot);
+            }
+            assertEquals(util.findSets(cards, table.cardsOnTable(cards), sets), table.setsOnTable());
+        }
+    }
+
+    @Test
+    void setsPerSlot_CountsTheSetsOfEachCard() {
+        Table table = new Table(new Env(logger, config, new MockUserInterface(), new UtilImpl(config)));
+        table.placeCard(0, 3);
+        table.placeCard(1, 2);
+        table.placeCard(2, 0); // 0000, 0001, 0002
+        assertArrayEquals(new int[]{1, 0, 1, 1}, table.setsPerSlot());
+        table.removeCard(0);
+        table.removeCard(2);
+        assertArrayEquals(new int[]{0, 0, 0, 0}, table.setsPerSlot());
+        table.placeCard(40, 2);
+        table.placeCard(80, 1); // 0000, 1111, 2222
+        assertArrayEquals(new int[]{0, 1, 1, 1}, table.setsPerSlot());
+    }
 }